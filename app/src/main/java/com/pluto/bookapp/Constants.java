@@ -1,5 +0,0 @@
-package com.pluto.bookapp;
-
-public class Constants {
-    public static final long MAX_BYTES_PDF = 500000000;//500MB
-}
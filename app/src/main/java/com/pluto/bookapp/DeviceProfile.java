@@ -0,0 +1,118 @@
+package com.pluto.bookapp;
+
+import android.app.ActivityManager;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.util.DisplayMetrics;
+import android.util.Log;
+
+import com.pluto.bookapp.reader.RendererPool;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// Cau hinh theo may: may it RAM (isLowRamDevice hoac memory class nho) dung bitmap RGB_565,
+// cache nho hon, ve truoc it trang hon va chi mot PdfRenderer moi sach.
+// Cac cache dang ky o day duoc thu nho khi he thong bao TRIM_MEMORY_*, app vao nen thi
+// giu it bo nho nhat co the de khong bi kill khi dang doc.
+public class DeviceProfile {
+
+    private static final String TAG = "DEVICE_PROFILE";
+
+    // memory class (MB) duoi muc nay thi coi nhu may yeu
+    private static final int LOW_MEMORY_CLASS = 128;
+
+    public interface Trimmable {
+        void trimMemory(int level);
+    }
+
+    private final boolean lowRam;
+    private final int memoryClass;
+    private final int screenBytes;
+    private final CopyOnWriteArrayList<Trimmable> trimmables = new CopyOnWriteArrayList<>();
+
+    public DeviceProfile(Context context) {
+        ActivityManager am = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        memoryClass = am.getMemoryClass();
+        lowRam = am.isLowRamDevice() || memoryClass < LOW_MEMORY_CLASS;
+        DisplayMetrics metrics = context.getResources().getDisplayMetrics();
+        screenBytes = metrics.widthPixels * metrics.heightPixels * bytesPerPixel(getPageConfig());
+
+        Log.d(TAG, "DeviceProfile: memory class " + memoryClass + "MB, low ram " + lowRam
+                + ", config " + getPageConfig() + ", prefetch " + getMaxPrefetch() + ", renderers " + getRendererPoolSize());
+    }
+
+    public boolean isLowRam() {
+        return lowRam;
+    }
+
+    public int getMemoryClass() {
+        return memoryClass;
+    }
+
+    // bitmap trang sach va o phong to. PdfRenderer chi ve vao ARGB_8888, RGB_565 thi ve roi doi,
+    // tiet kiem mot nua bo nho cua cache (trang sach khong can trong suot)
+    public Bitmap.Config getPageConfig() {
+        return lowRam ? Bitmap.Config.RGB_565 : Bitmap.Config.ARGB_8888;
+    }
+
+    public static int bytesPerPixel(Bitmap.Config config) {
+        return config == Bitmap.Config.RGB_565 ? 2 : 4;
+    }
+
+    public int getPageCacheBytes() {
+        return memoryBytes(lowRam ? 8 : 4);
+    }
+
+    // it nhat 2 man hinh o: man hinh dang xem phai vua, neu khong o vua ve da bi day ra va ve lai mai
+    public int getTileCacheBytes() {
+        return Math.max(memoryBytes(lowRam ? 16 : 8), screenBytes * 2);
+    }
+
+    public int getCoverCacheBytes() {
+        return memoryBytes(lowRam ? 16 : 8);
+    }
+
+    public int getThumbnailCacheBytes() {
+        return memoryBytes(lowRam ? 64 : 32);
+    }
+
+    // so trang ve truoc moi phia toi da, con bi gioi han boi PageCache
+    public int getMaxPrefetch() {
+        return lowRam ? 1 : 3;
+    }
+
+    // moi PdfRenderer giu cau truc pdf da doc trong bo nho
+    public int getRendererPoolSize() {
+        return lowRam ? 1 : RendererPool.defaultSize();
+    }
+
+    // Glide: so man hinh anh giu trong memory cache
+    public float getGlideMemoryScreens() {
+        return lowRam ? 1f : 2f;
+    }
+
+    private int memoryBytes(int fraction) {
+        return memoryClass * 1024 * 1024 / fraction;
+    }
+
+    public void register(Trimmable trimmable) {
+        trimmables.addIfAbsent(trimmable);
+    }
+
+    public void unregister(Trimmable trimmable) {
+        trimmables.remove(trimmable);
+    }
+
+    // goi tu Application.onTrimMemory / onLowMemory. Glide tu dang ky ComponentCallbacks rieng.
+    // May yeu vao nen thi bo het cache tren bo nho ngay tu UI_HIDDEN
+    public void trimMemory(int level) {
+        if (lowRam && level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) {
+            level = ComponentCallbacks2.TRIM_MEMORY_COMPLETE;
+        }
+        Log.d(TAG, "trimMemory: level " + level + ", " + trimmables.size() + " caches");
+        for (Trimmable trimmable : trimmables) {
+            trimmable.trimMemory(level);
+        }
+    }
+}
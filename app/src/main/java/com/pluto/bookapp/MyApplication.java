@@ -1,50 +1,182 @@
 package com.pluto.bookapp;
 
-import static com.pluto.bookapp.Constants.MAX_BYTES_PDF;
-
 import android.app.Application;
 import android.app.ProgressDialog;
+import android.content.ContentResolver;
+import android.content.ComponentCallbacks2;
+import android.content.ContentValues;
 import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.drawable.Drawable;
+import android.net.Uri;
+import android.os.Build;
 import android.os.Environment;
+import android.os.ParcelFileDescriptor;
+import android.provider.MediaStore;
 import android.text.format.DateFormat;
 import android.util.Log;
+import android.util.LruCache;
 import android.view.View;
+import android.widget.ImageView;
 import android.widget.ProgressBar;
 import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.annotation.NonNull;
-
-import com.github.barteksc.pdfviewer.PDFView;
-import com.github.barteksc.pdfviewer.listener.OnErrorListener;
-import com.github.barteksc.pdfviewer.listener.OnLoadCompleteListener;
-import com.github.barteksc.pdfviewer.listener.OnPageErrorListener;
+import androidx.annotation.Nullable;
+import androidx.lifecycle.Observer;
+import androidx.work.WorkInfo;
+import androidx.work.WorkManager;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.RequestBuilder;
+import com.bumptech.glide.RequestManager;
+import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.load.engine.DiskCacheStrategy;
+import com.bumptech.glide.load.engine.GlideException;
+import com.bumptech.glide.request.RequestListener;
+import com.bumptech.glide.request.target.Target;
+
+import com.pluto.bookapp.cover.CoverCache;
+import com.pluto.bookapp.cover.CoverRenderer;
+import com.pluto.bookapp.cover.PdfCover;
+import com.pluto.bookapp.cover.PdfRangeFetcher;
+import com.pluto.bookapp.store.BookStore;
+import com.pluto.bookapp.store.DownloadQueue;
+import com.pluto.bookapp.store.FavoriteSync;
+import com.pluto.bookapp.store.MetadataCache;
+import com.pluto.bookapp.worker.BookDownloadWorker;
 import com.google.android.gms.tasks.OnFailureListener;
 import com.google.android.gms.tasks.OnSuccessListener;
+import com.google.android.gms.tasks.Tasks;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.database.DataSnapshot;
 import com.google.firebase.database.DatabaseError;
 import com.google.firebase.database.DatabaseReference;
 import com.google.firebase.database.FirebaseDatabase;
 import com.google.firebase.database.ValueEventListener;
+import com.google.firebase.storage.FileDownloadTask;
 import com.google.firebase.storage.FirebaseStorage;
 import com.google.firebase.storage.StorageMetadata;
 import com.google.firebase.storage.StorageReference;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
 import java.util.Calendar;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class MyApplication extends Application {
 
     public static final String TAG_DOWN = "DOWN_BOOK";
 
+    private static final ExecutorService bannerExecutor = Executors.newFixedThreadPool(3);
+
+
+    private static DeviceProfile deviceProfile;
+    private static CoverCache coverCache;
+    private static MetadataCache metadataCache;
+    private static BookStore bookStore;
+    private static DownloadQueue downloadQueue;
+    private static FavoriteSync favoriteSync;
+
+    // dung luong file va ten the loai cua cac dong da hien hoac da prefetch
+    private static final LruCache<String, Long> pdfSizeCache = new LruCache<>(500);
+    private static final LruCache<String, String> categoryCache = new LruCache<>(100);
 
     @Override
     public void onCreate() {
         super.onCreate();
+
+        // doc cau hinh may truoc de cac cache lay dung luong theo may
+        deviceProfile = new DeviceProfile(this);
+        coverCache = new CoverCache(this, deviceProfile.getCoverCacheBytes());
+        deviceProfile.register(coverCache);
+        metadataCache = new MetadataCache();
+        bookStore = new BookStore(this, metadataCache);
+
+        // worker tai sach xong/huy/loi thi hang doi giao sach tiep theo. LiveData bao ca moi lan
+        // setProgressAsync (500ms) nen chi dispatch khi co worker vua sang trang thai ket thuc
+        downloadQueue = new DownloadQueue(this);
+        WorkManager.getInstance(this).getWorkInfosByTagLiveData(BookDownloadWorker.WORK_TAG)
+                .observeForever(new Observer<List<WorkInfo>>() {
+                    private final HashMap<UUID, WorkInfo.State> lastStates = new HashMap<>();
+                    private boolean first = true;
+
+                    @Override
+                    public void onChanged(List<WorkInfo> workInfos) {
+                        boolean finished = false;
+                        HashMap<UUID, WorkInfo.State> states = new HashMap<>();
+                        for (WorkInfo info : workInfos) {
+                            WorkInfo.State state = info.getState();
+                            states.put(info.getId(), state);
+                            if(state.isFinished() && state != lastStates.get(info.getId())){
+                                finished = true;
+                            }
+                        }
+                        lastStates.clear();
+                        lastStates.putAll(states);
+                        // lan dau: mo app lai thi giao tiep sach con trong hang doi
+                        if(finished || first){
+                            first = false;
+                            downloadQueue.dispatch();
+                        }
+                    }
+                });
+
+        // sach yeu thich offline theo tai khoan dang dang nhap
+        favoriteSync = new FavoriteSync(this, bookStore);
+        FirebaseAuth.getInstance().addAuthStateListener(new FirebaseAuth.AuthStateListener() {
+            @Override
+            public void onAuthStateChanged(@NonNull FirebaseAuth firebaseAuth) {
+                favoriteSync.start();
+            }
+        });
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        deviceProfile.trimMemory(level);
+    }
+
+    @Override
+    public void onLowMemory() {
+        super.onLowMemory();
+        deviceProfile.trimMemory(ComponentCallbacks2.TRIM_MEMORY_COMPLETE);
+    }
+
+    public static DeviceProfile getDeviceProfile() {
+        return deviceProfile;
+    }
+
+    public static CoverCache getCoverCache() {
+        return coverCache;
+    }
+
+    public static MetadataCache getMetadataCache() {
+        return metadataCache;
+    }
+
+    public static BookStore getBookStore() {
+        return bookStore;
+    }
+
+    public static DownloadQueue getDownloadQueue() {
+        return downloadQueue;
+    }
+
+    public static FavoriteSync getFavoriteSync() {
+        return favoriteSync;
     }
 
     public static String formatTimeStamp(long timestamp){
@@ -73,6 +205,12 @@ public class MyApplication extends Application {
                 .addOnSuccessListener(new OnSuccessListener<Void>() {
                     @Override
                     public void onSuccess(Void unused) {
+                        // xoa luon anh bia (sach cu co the khong co)
+                        FirebaseStorage.getInstance().getReference("Book/" + bookId + "_cover").delete();
+                        coverCache.invalidate(bookId);
+                        bookStore.remove(bookId);
+                        metadataCache.invalidate(bookUrl);
+
                         DatabaseReference reference = FirebaseDatabase.getInstance().getReference("Books");
                         reference.child(bookId)
                                 .removeValue()
@@ -102,108 +240,361 @@ public class MyApplication extends Application {
     }
 
     public static void loadPdfSize(String pdfUrl, String pdfTitle, TextView sizeTv) {
+        loadPdfSize(pdfUrl, pdfTitle, sizeTv, null);
+    }
+
+    public static void loadPdfSize(String pdfUrl, String pdfTitle, TextView sizeTv, RequestToken token) {
+        loadPdfSize(pdfUrl, pdfTitle, sizeTv, token, null);
+    }
+
+    public static void loadPdfSize(String pdfUrl, String pdfTitle, TextView sizeTv, RequestToken token, Runnable onDone) {
         String TAG = "BOOK_SIZE_TAG";
 
+        int gen = token == null ? 0 : token.current();
 
-        StorageReference ref = FirebaseStorage.getInstance().getReferenceFromUrl(pdfUrl);
-        ref.getMetadata()
-                .addOnSuccessListener(new OnSuccessListener<StorageMetadata>() {
+        // da co trong cache (prefetch hoac lan bind truoc) thi khong goi mang
+        if(loadPdfSizeFromCache(pdfUrl, sizeTv)){
+            if(onDone != null){
+                onDone.run();
+            }
+            return;
+        }
+
+        // dung chung metadata voi BookStore: mo sach ngay sau do khong phai hoi lai Storage
+        metadataCache.get(pdfUrl, new MetadataCache.Callback() {
                     @Override
-                    public void onSuccess(StorageMetadata storageMetadata) {
+                    public void onMetadata(StorageMetadata storageMetadata) {
+                        pdfSizeCache.put(pdfUrl, storageMetadata.getSizeBytes());
+                        if(onDone != null){
+                            onDone.run();
+                        }
+                        // getMetadata khong huy duoc, chi bo ket qua neu holder da bind sach khac
+                        if(token != null && !token.isCurrent(gen)){
+                            return;
+                        }
                         Log.d(TAG, "onSuccess: "+ pdfTitle);
 
-                        double bytes = storageMetadata.getSizeBytes();
+                        showPdfSize(sizeTv, storageMetadata.getSizeBytes());
+                    }
 
-                        double kb = bytes/1024;
-                        double mb = kb/1024;
-                        if(mb >= 1){
-                            sizeTv.setText(String.format("%.2f",mb) + " MB");
-                        }
-                        else if(kb >= 1) {
-                            sizeTv.setText(String.format("%.2f",kb) + " KB");
-                        }
-                        else {
-                            sizeTv.setText(String.format("%.2f",bytes) + " bytes");
+                    @Override
+                    public void onError(Exception e) {
+                        if(onDone != null){
+                            onDone.run();
                         }
+                        Log.d(TAG, "onFailure: "+e.getMessage());
+                    }
+                });
+    }
+
+    public static boolean loadPdfSizeFromCache(String pdfUrl, TextView sizeTv) {
+        Long bytes = pdfSizeCache.get(pdfUrl);
+        if(bytes == null){
+            return false;
+        }
+        showPdfSize(sizeTv, bytes);
+        return true;
+    }
 
+    // lay truoc dung luong cho dong sap hien, chi dien vao cache
+    public static void prefetchPdfSize(String pdfUrl, Runnable onDone) {
+        if(pdfSizeCache.get(pdfUrl) != null){
+            onDone.run();
+            return;
+        }
+        metadataCache.get(pdfUrl, new MetadataCache.Callback() {
+                    @Override
+                    public void onMetadata(StorageMetadata storageMetadata) {
+                        pdfSizeCache.put(pdfUrl, storageMetadata.getSizeBytes());
+                        onDone.run();
                     }
-                })
-                .addOnFailureListener(new OnFailureListener() {
+
                     @Override
-                    public void onFailure(@NonNull Exception e) {
-                        Log.d(TAG, "onFailure: "+e.getMessage());
+                    public void onError(Exception e) {
+                        onDone.run();
                     }
                 });
     }
 
-    public static void loadBannerPdf(String pdfUrl, String pdfTitle, PDFView pdfView, ProgressBar progressBar, TextView pageTv) {
+    public static void showPdfSize(TextView sizeTv, double bytes) {
+        sizeTv.setText(formatBytes(bytes));
+    }
+
+    public static String formatBytes(double bytes) {
+        double kb = bytes/1024;
+        double mb = kb/1024;
+        if(mb >= 1){
+            return String.format("%.2f",mb) + " MB";
+        }
+        else if(kb >= 1) {
+            return String.format("%.2f",kb) + " KB";
+        }
+        else {
+            return String.format("%.2f",bytes) + " bytes";
+        }
+    }
+
+    public static void loadBookCover(String bookId, String coverUrl, String pdfUrl, String pdfTitle, ImageView coverIv, ProgressBar progressBar) {
+        loadBookCover(bookId, coverUrl, pdfUrl, pdfTitle, coverIv, progressBar, null, null);
+    }
+
+    // placeholder: blurhash/mau chu dao, co thi khong can hien spinner
+    // onDone: bao cho CoverLoadScheduler khi request ket thuc
+    public static void loadBookCover(String bookId, String coverUrl, String pdfUrl, String pdfTitle, ImageView coverIv, ProgressBar progressBar, Drawable placeholder, Runnable onDone) {
+
+        // loadBannerPdf co the da gan key cho view nay truoc do
+        coverIv.setTag(R.id.cover_key, null);
+        progressBar.setVisibility(placeholder == null ? View.VISIBLE : View.INVISIBLE);
+
+        // Glide tu huy request cu khi view duoc load lai hoac clear trong onViewRecycled
+        coverRequest(Glide.with(coverIv), bookId, coverUrl, pdfUrl)
+                .placeholder(placeholder)
+                .listener(new RequestListener<Drawable>() {
+                    @Override
+                    public boolean onLoadFailed(@Nullable GlideException e, Object model, @NonNull Target<Drawable> target, boolean isFirstResource) {
+                        progressBar.setVisibility(View.INVISIBLE);
+                        Log.d("LOAD_BOOK_COVER", "onLoadFailed: "+pdfTitle);
+                        if(onDone != null){
+                            onDone.run();
+                        }
+                        return false;
+                    }
+
+                    @Override
+                    public boolean onResourceReady(@NonNull Drawable resource, @NonNull Object model, Target<Drawable> target, @NonNull DataSource dataSource, boolean isFirstResource) {
+                        progressBar.setVisibility(View.INVISIBLE);
+                        if(onDone != null){
+                            onDone.run();
+                        }
+                        return false;
+                    }
+                })
+                .into(coverIv);
+    }
+
+    // request anh bia dung chung cho dong sach va prefetch de trung key trong cache cua Glide
+    public static RequestBuilder<Drawable> coverRequest(RequestManager glide, String bookId, String coverUrl, String pdfUrl) {
+        if(coverUrl == null || coverUrl.isEmpty() || coverUrl.equals("null")){
+            // sach cu chua co anh bia: Glide ve trang dau tu pdf (BookGlideModule)
+            return glide.load(new PdfCover(bookId, pdfUrl)).diskCacheStrategy(DiskCacheStrategy.RESOURCE);
+        }
+        return glide.load(coverUrl);
+    }
+
+    public static void loadBannerPdf(String bookId, String pdfUrl, String pdfTitle, ImageView coverIv, ProgressBar progressBar, TextView pageTv) {
+        loadBannerPdf(bookId, pdfUrl, pdfTitle, coverIv, progressBar, pageTv, null);
+    }
+
+    public static void loadBannerPdf(String bookId, String pdfUrl, String pdfTitle, ImageView coverIv, ProgressBar progressBar, TextView pageTv, RequestToken token) {
 
         String TAG = "LOAD_BANNER_PDF";
 
+        int gen = token == null ? 0 : token.current();
+
+        String key = CoverCache.key(bookId, pdfUrl);
+        coverIv.setTag(R.id.cover_key, key);
+
+        // co trong bo nho thi hien luon, khong can thread hay mang
+        Bitmap cached = coverCache.getFromMemory(key);
+        if(cached != null){
+            showBanner(key, cached, coverCache.getPageCount(key), coverIv, progressBar, pageTv);
+            return;
+        }
+
         Log.d(TAG, "loadBannerPdf: url la: "+ pdfUrl);
+        coverIv.setImageDrawable(null);
+        progressBar.setVisibility(View.VISIBLE);
+
+        File bannerDir = new File(coverIv.getContext().getCacheDir(), "banners");
+        bannerDir.mkdirs();
+        File bannerFile = new File(bannerDir, key + ".pdf");
 
         StorageReference ref = FirebaseStorage.getInstance().getReferenceFromUrl(pdfUrl);
-        ref.getBytes(MAX_BYTES_PDF)
-                .addOnSuccessListener(new OnSuccessListener<byte[]>() {
-                    @Override
-                    public void onSuccess(byte[] bytes) {
-                        Log.d(TAG, "onSuccess: load"+ pdfTitle);
-
-                        pdfView.fromBytes(bytes)
-                                .pages(0)// show ra trang dau tien cua pdf
-                                .spacing(0)
-                                .swipeHorizontal(false)
-                                .enableSwipe(false)
-                                .onError(new OnErrorListener() {
-                                    @Override
-                                    public void onError(Throwable t) {
-                                        progressBar.setVisibility(View.INVISIBLE);
-                                        Log.d(TAG, "onError: "+ t.getMessage());
-                                    }
-                                })
-                                .onPageError(new OnPageErrorListener() {
-                                    @Override
-                                    public void onPageError(int page, Throwable t) {
-                                        progressBar.setVisibility(View.INVISIBLE);
-                                        Log.d(TAG, "onPageError: "+ t.getMessage());
-                                    }
-                                })
-                                .onLoad(new OnLoadCompleteListener() {
-                                    @Override
-                                    public void loadComplete(int nbPages) {
-                                        // tai trang pdf thi se an cai xoay xoay
-                                        progressBar.setVisibility(View.INVISIBLE);
 
-                                        if(pageTv != null){
-                                            pageTv.setText(""+nbPages);
+        Future<?> future = bannerExecutor.submit(new Runnable() {
+            @Override
+            public void run() {
+                Bitmap fromDisk = coverCache.getFromDisk(key);
+                if(fromDisk != null){
+                    postBanner(key, fromDisk, coverCache.getPageCount(key), coverIv, progressBar, pageTv);
+                    return;
+                }
+
+                // sach da co trong kho offline thi ve tu file do, khong can mang
+                File localBook = bookStore.getLocalFile(bookId, pdfUrl);
+                if(localBook != null){
+                    try {
+                        renderBanner(key, localBook, false, coverIv, progressBar, pageTv);
+                        return;
+                    } catch (IOException e) {
+                        Log.d(TAG, "run: local book "+e.getMessage());
+                    }
+                }
+
+                // chi tai cac doan byte can cho trang dau, khong tai ca cuon sach
+                try {
+                    String downloadUrl = pdfUrl.startsWith("http") ? pdfUrl : ""+Tasks.await(ref.getDownloadUrl());
+
+                    PdfRangeFetcher fetcher = new PdfRangeFetcher(downloadUrl, bannerFile);
+                    fetcher.fetchFirstPage();
+                    Log.d(TAG, "run: "+pdfTitle+" fetched "+fetcher.getBytesFetched()+" of "+fetcher.getFileLength()
+                            +" bytes, saved "+fetcher.getBytesSaved());
+
+                    renderBanner(key, bannerFile, true, coverIv, progressBar, pageTv);
+                }
+                catch (Exception e){
+                    if(e instanceof InterruptedIOException || Thread.currentThread().isInterrupted()
+                            || (token != null && !token.isCurrent(gen))){
+                        // bi huy do holder da bind sach khac
+                        bannerFile.delete();
+                        return;
+                    }
+                    Log.d(TAG, "run: partial fetch failed, download whole file: "+e.getMessage());
+
+                    FileDownloadTask downloadTask = ref.getFile(bannerFile);
+                    if(token != null){
+                        token.onCancel(gen, new Runnable() {
+                            @Override
+                            public void run() {
+                                downloadTask.cancel();
+                            }
+                        });
+                    }
+                    downloadTask
+                            .addOnSuccessListener(new OnSuccessListener<FileDownloadTask.TaskSnapshot>() {
+                                @Override
+                                public void onSuccess(FileDownloadTask.TaskSnapshot taskSnapshot) {
+                                    Log.d(TAG, "onSuccess: load"+ pdfTitle);
+                                    bannerExecutor.execute(new Runnable() {
+                                        @Override
+                                        public void run() {
+                                            try {
+                                                renderBanner(key, bannerFile, true, coverIv, progressBar, pageTv);
+                                            } catch (IOException e) {
+                                                Log.d(TAG, "run: "+e.getMessage());
+                                            }
                                         }
+                                    });
+                                }
+                            })
+                            .addOnFailureListener(new OnFailureListener() {
+                                @Override
+                                public void onFailure(@NonNull Exception e) {
+                                    if(token == null || token.isCurrent(gen)){
+                                        progressBar.setVisibility(View.INVISIBLE);
                                     }
-                                })
-                                .load();
+                                    Log.d(TAG, "onFailure: "+e.getMessage());
+                                }
+                            });
+                }
+            }
+        });
+
+        if(token != null){
+            token.onCancel(gen, new Runnable() {
+                @Override
+                public void run() {
+                    // ngat luon thread dang tai range
+                    future.cancel(true);
+                }
+            });
+        }
 
+    }
 
-                    }
-                })
-                .addOnFailureListener(new OnFailureListener() {
-                    @Override
-                    public void onFailure(@NonNull Exception e) {
-                        Log.d(TAG, "onFailure: "+e.getMessage());
-                    }
-                });
+    // ve trang dau bang PdfRenderer, cat vao cache roi xoa file pdf tam (file trong kho sach thi giu)
+    private static void renderBanner(String key, File bannerFile, boolean temporary, ImageView coverIv, ProgressBar progressBar, TextView pageTv) throws IOException {
+        ParcelFileDescriptor pfd = ParcelFileDescriptor.open(bannerFile, ParcelFileDescriptor.MODE_READ_ONLY);
+        CoverRenderer.Result result;
+        try {
+            result = CoverRenderer.render(pfd, CoverRenderer.COVER_WIDTH);
+        } finally {
+            if(temporary){
+                bannerFile.delete();
+            }
+        }
+
+        coverCache.put(key, result.bitmap, result.pageCount);
+        postBanner(key, result.bitmap, result.pageCount, coverIv, progressBar, pageTv);
+    }
 
+    private static void postBanner(String key, Bitmap bitmap, int pageCount, ImageView coverIv, ProgressBar progressBar, TextView pageTv) {
+        coverIv.post(new Runnable() {
+            @Override
+            public void run() {
+                showBanner(key, bitmap, pageCount, coverIv, progressBar, pageTv);
+            }
+        });
+    }
+
+    private static void showBanner(String key, Bitmap bitmap, int pageCount, ImageView coverIv, ProgressBar progressBar, TextView pageTv) {
+        // holder da duoc dung cho sach khac thi bo qua
+        if(!key.equals(coverIv.getTag(R.id.cover_key))){
+            return;
+        }
+
+        coverIv.setImageBitmap(bitmap);
+        // tai trang pdf thi se an cai xoay xoay
+        progressBar.setVisibility(View.INVISIBLE);
+
+        if(pageTv != null && pageCount > 0){
+            pageTv.setText(""+pageCount);
+        }
     }
 
     public static void loadCategory(String categoryId, TextView categoryTv) {
+        loadCategory(categoryId, categoryTv, null);
+    }
+
+    public static void loadCategory(String categoryId, TextView categoryTv, RequestToken token) {
+
+        int gen = token == null ? 0 : token.current();
+
+        String cached = categoryCache.get(categoryId);
+        if(cached != null){
+            categoryTv.setText(cached);
+            return;
+        }
 
+        DatabaseReference ref = FirebaseDatabase.getInstance().getReference("Categories").child(categoryId);
+        ValueEventListener listener = new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot snapshot) {
+                if(token != null && !token.isCurrent(gen)){
+                    return;
+                }
+                String category = ""+snapshot.child("category").getValue();
+                categoryCache.put(categoryId, category);
+
+                categoryTv.setText(category);
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {
+
+            }
+        };
+        ref.addListenerForSingleValueEvent(listener);
+
+        if(token != null){
+            token.onCancel(gen, new Runnable() {
+                @Override
+                public void run() {
+                    ref.removeEventListener(listener);
+                }
+            });
+        }
+    }
 
-        DatabaseReference ref = FirebaseDatabase.getInstance().getReference("Categories");
-        ref.child(categoryId)
+    public static void prefetchCategory(String categoryId) {
+        if(categoryCache.get(categoryId) != null){
+            return;
+        }
+        FirebaseDatabase.getInstance().getReference("Categories").child(categoryId)
                 .addListenerForSingleValueEvent(new ValueEventListener() {
                     @Override
                     public void onDataChange(@NonNull DataSnapshot snapshot) {
-                        String category = ""+snapshot.child("category").getValue();
-
-                        categoryTv.setText(category);
+                        categoryCache.put(categoryId, ""+snapshot.child("category").getValue());
                     }
 
                     @Override
@@ -242,60 +633,88 @@ public class MyApplication extends Application {
                 });
     }
 
+    // them vao hang doi tai, DownloadQueue giao cho BookDownloadWorker khi con cho
     public static void downloadBook(Context context, String bookId, String bookTitle, String bookUrl){
-
-        String namepdf = bookTitle + ".pdf";
-        Log.d(TAG_DOWN, "downloadBook: "+namepdf);
-
-        ProgressDialog progressDialog = new ProgressDialog(context);
-        progressDialog.setTitle("Please wait");
-        progressDialog.setMessage("Downloading "+ namepdf);
-        progressDialog.setCanceledOnTouchOutside(false);
-        progressDialog.show();
-
-        StorageReference storageReference = FirebaseStorage.getInstance().getReferenceFromUrl(bookUrl);
-        storageReference.getBytes(MAX_BYTES_PDF)
-                .addOnSuccessListener(new OnSuccessListener<byte[]>() {
-                    @Override
-                    public void onSuccess(byte[] bytes) {
-//                        progressDialog.dismiss();
-                        Log.d(TAG_DOWN, "onSuccess: Saving book");
-                        saveDownloadBook(context, progressDialog, bytes, namepdf, bookId);
-                    }
-                })
-                .addOnFailureListener(new OnFailureListener() {
-                    @Override
-                    public void onFailure(@NonNull Exception e) {
-                        progressDialog.dismiss();
-                        Toast.makeText(context, "Failed to download "+e.getMessage(), Toast.LENGTH_SHORT).show();
-                    }
-                });
-
+        Log.d(TAG_DOWN, "downloadBook: "+bookTitle);
+        downloadQueue.add(bookId, bookTitle, bookUrl);
+        Toast.makeText(context, "Added "+bookTitle+" to downloads", Toast.LENGTH_SHORT).show();
     }
 
-    private static void saveDownloadBook(Context context, ProgressDialog progressDialog, byte[] bytes, String namepdf, String bookId) {
+    // chep tu kho sach ra thu muc Download theo tung doan 64KB, khong doc ca file vao bo nho.
+    // Goi tren thread nen (BookDownloadWorker). Android 10+ ghi qua MediaStore.Downloads,
+    // ban cu hon ghi thang vao thu muc Download. Tra ve uri cua file da luu
+    public static Uri saveDownloadBook(Context context, File bookFile, String namepdf, String bookId) throws IOException {
         Log.d(TAG_DOWN, "saveDownloadBook: Saving download book");
-        try{
-            File downloadFolder  = Environment.getExternalStoragePublicDirectory(Environment.DIRECTORY_DOWNLOADS);
-            downloadFolder.mkdirs();
-
-            String filePath = downloadFolder.getPath() + "/" + namepdf;
-
-            FileOutputStream out = new FileOutputStream(filePath);
-            out.write(bytes);
+        ContentResolver resolver = context.getContentResolver();
+
+        // mo file nguon truoc: sach bi don khoi kho thi khong tao file rong trong Download
+        FileInputStream in = new FileInputStream(bookFile);
+        Uri uri = null;
+        File file = null;
+        OutputStream out = null;
+        boolean saved = false;
+        try {
+            if(Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q){
+                ContentValues values = new ContentValues();
+                values.put(MediaStore.Downloads.DISPLAY_NAME, namepdf);
+                values.put(MediaStore.Downloads.MIME_TYPE, "application/pdf");
+                // app khac chua thay file cho toi khi chep xong
+                values.put(MediaStore.Downloads.IS_PENDING, 1);
+                uri = resolver.insert(MediaStore.Downloads.EXTERNAL_CONTENT_URI, values);
+                if(uri == null){
+                    throw new IOException("Cannot create "+namepdf+" in Downloads");
+                }
+                out = resolver.openOutputStream(uri);
+                if(out == null){
+                    throw new IOException("Cannot open "+uri);
+                }
+            }
+            else {
+                File downloadFolder  = Environment.getExternalStoragePublicDirectory(Environment.DIRECTORY_DOWNLOADS);
+                downloadFolder.mkdirs();
+                file = new File(downloadFolder, namepdf);
+                uri = Uri.fromFile(file);
+                out = new FileOutputStream(file);
+            }
+
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            // close co the flush va loi, phai xong truoc khi bo IS_PENDING
             out.close();
-
-            Toast.makeText(context, "Saved to Download Folder", Toast.LENGTH_SHORT).show();
-            progressDialog.dismiss();
-
-
-            // tang luot download len
-            incrementBookDownloadCount(bookId);
-
-        }catch (Exception e){
-            Log.d(TAG_DOWN, "saveDownloadBook: Failed saving to Download Folder: "+e.getMessage());
-            Toast.makeText(context, "Failed saving to Download: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+            out = null;
+
+            if(Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q){
+                ContentValues done = new ContentValues();
+                done.put(MediaStore.Downloads.IS_PENDING, 0);
+                resolver.update(uri, done, null, null);
+            }
+            saved = true;
+        } finally {
+            in.close();
+            if(out != null){
+                try {
+                    out.close();
+                } catch (IOException e) {
+                    Log.d(TAG_DOWN, "saveDownloadBook: "+e.getMessage());
+                }
+            }
+            if(!saved){
+                // khong de lai file rong/dang pending trong Download
+                if(file != null){
+                    file.delete();
+                }
+                else if(uri != null){
+                    resolver.delete(uri, null, null);
+                }
+            }
         }
+
+        // tang luot download len
+        incrementBookDownloadCount(bookId);
+        return uri;
     }
 
     private static void incrementBookDownloadCount(String bookId) {
@@ -0,0 +1,54 @@
+package com.pluto.bookapp;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Moi ViewHolder giu mot token. Moi lan bind thi token sang "the he" moi,
+// cac request cua lan bind truoc bi huy va ket qua cua chung bi bo qua.
+public class RequestToken {
+
+    private final AtomicInteger generation = new AtomicInteger();
+    private final ArrayList<Runnable> cancellers = new ArrayList<>();
+
+    // goi dau onBindViewHolder, tra ve the he moi
+    public int reset() {
+        cancel();
+        return generation.get();
+    }
+
+    public int current() {
+        return generation.get();
+    }
+
+    public boolean isCurrent(int gen) {
+        return generation.get() == gen;
+    }
+
+    // dang ky cach huy mot request dang chay (cancel task, remove listener...)
+    public void onCancel(int gen, Runnable canceller) {
+        boolean stale;
+        synchronized (cancellers) {
+            stale = !isCurrent(gen);
+            if (!stale) {
+                cancellers.add(canceller);
+            }
+        }
+        // holder da bind sang sach khac trong luc request dang khoi tao
+        if (stale) {
+            canceller.run();
+        }
+    }
+
+    // goi trong onViewRecycled
+    public void cancel() {
+        ArrayList<Runnable> toRun;
+        synchronized (cancellers) {
+            generation.incrementAndGet();
+            toRun = new ArrayList<>(cancellers);
+            cancellers.clear();
+        }
+        for (Runnable canceller : toRun) {
+            canceller.run();
+        }
+    }
+}
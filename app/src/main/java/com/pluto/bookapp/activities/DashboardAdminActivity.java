@@ -2,16 +2,23 @@ package com.pluto.bookapp.activities;
 
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.lifecycle.Observer;
+import androidx.work.Data;
+import androidx.work.WorkInfo;
+import androidx.work.WorkManager;
 
 import android.content.Intent;
 import android.os.Bundle;
 import android.text.Editable;
 import android.text.TextWatcher;
+import android.util.Log;
 import android.view.View;
+import android.widget.Toast;
 
 import com.pluto.bookapp.adapter.AdapterCategory;
 import com.pluto.bookapp.databinding.ActivityDashboardAdminBinding;
 import com.pluto.bookapp.model.ModelCategory;
+import com.pluto.bookapp.worker.CoverBackfillWorker;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
 import com.google.firebase.database.DataSnapshot;
@@ -21,11 +28,14 @@ import com.google.firebase.database.FirebaseDatabase;
 import com.google.firebase.database.ValueEventListener;
 
 import java.util.ArrayList;
+import java.util.List;
 
 public class DashboardAdminActivity extends AppCompatActivity {
 
     private ActivityDashboardAdminBinding binding;
 
+    private static final String TAG = "DASHBOARD_ADMIN";
+
     private FirebaseAuth firebaseAuth;
 
     private ArrayList<ModelCategory> categoryArrayList;
@@ -96,6 +106,45 @@ public class DashboardAdminActivity extends AppCompatActivity {
             }
         });
 
+        //tao anh bia, so trang, dung luong cho sach cu
+        binding.backfillBtn.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                CoverBackfillWorker.enqueue(DashboardAdminActivity.this);
+                Toast.makeText(DashboardAdminActivity.this, "Backfill started", Toast.LENGTH_SHORT).show();
+            }
+        });
+        observeBackfill();
+
+    }
+
+    private void observeBackfill() {
+        WorkManager.getInstance(this)
+                .getWorkInfosForUniqueWorkLiveData(CoverBackfillWorker.WORK_NAME)
+                .observe(this, new Observer<List<WorkInfo>>() {
+                    @Override
+                    public void onChanged(List<WorkInfo> workInfos) {
+                        if(workInfos == null || workInfos.isEmpty()){
+                            return;
+                        }
+                        WorkInfo info = workInfos.get(0);
+                        Data data = info.getState().isFinished() ? info.getOutputData() : info.getProgress();
+                        int processed = data.getInt(CoverBackfillWorker.KEY_PROCESSED, 0);
+                        int updated = data.getInt(CoverBackfillWorker.KEY_UPDATED, 0);
+                        int failed = data.getInt(CoverBackfillWorker.KEY_FAILED, 0);
+
+                        if(info.getState() == WorkInfo.State.RUNNING || info.getState() == WorkInfo.State.ENQUEUED){
+                            binding.backfillBtn.setText("Generating covers: "+processed+" (+"+updated+", "+failed+" failed)");
+                        }
+                        else if(info.getState() == WorkInfo.State.SUCCEEDED){
+                            binding.backfillBtn.setText("Generate Covers");
+                            Log.d(TAG, "onChanged: backfill done "+processed+" books, updated "+updated+", failed "+failed);
+                        }
+                        else {
+                            binding.backfillBtn.setText("Generate Covers");
+                        }
+                    }
+                });
     }
 
     private void loadCategories() {
@@ -65,6 +65,13 @@ public class DashboardUserActivity extends AppCompatActivity {
             }
         });
 
+        binding.downloadsBtn.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                startActivity(new Intent(DashboardUserActivity.this, DownloadQueueActivity.class));
+            }
+        });
+
 
     }
 
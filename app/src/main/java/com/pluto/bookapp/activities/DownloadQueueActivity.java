@@ -0,0 +1,171 @@
+package com.pluto.bookapp.activities;
+
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.lifecycle.Observer;
+import androidx.work.WorkInfo;
+import androidx.work.WorkManager;
+
+import android.os.Bundle;
+import android.view.View;
+import android.widget.CompoundButton;
+
+import com.pluto.bookapp.MyApplication;
+import com.pluto.bookapp.adapter.AdapterDownload;
+import com.pluto.bookapp.databinding.ActivityDownloadQueueBinding;
+import com.pluto.bookapp.store.BookStore;
+import com.pluto.bookapp.store.DownloadQueue;
+import com.pluto.bookapp.worker.BookDownloadWorker;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+// Hang doi tai sach: doi thu tu, huy, so sach tai cung luc, dieu kien Wi-Fi/sac va dung luong kho offline
+public class DownloadQueueActivity extends AppCompatActivity {
+
+    private ActivityDownloadQueueBinding binding;
+
+    // moi lan bam +/- doi budget 250MB
+    private static final long BUDGET_STEP = 250L * 1024 * 1024;
+    private static final long BUDGET_MAX = 8 * BUDGET_STEP;
+
+    private DownloadQueue downloadQueue;
+    private BookStore bookStore;
+
+    private ArrayList<DownloadQueue.Item> itemArrayList;
+    private AdapterDownload adapterDownload;
+
+    private DownloadQueue.Listener queueListener = new DownloadQueue.Listener() {
+        @Override
+        public void onQueueChanged() {
+            loadQueue();
+        }
+    };
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        binding = ActivityDownloadQueueBinding.inflate(getLayoutInflater());
+        setContentView(binding.getRoot());
+
+        downloadQueue = MyApplication.getDownloadQueue();
+        bookStore = MyApplication.getBookStore();
+
+        itemArrayList = new ArrayList<>();
+        adapterDownload = new AdapterDownload(this, itemArrayList);
+        binding.queueRv.setAdapter(adapterDownload);
+
+        loadQueue();
+        showSettings();
+
+        // tien do cua tung sach lay tu progress cua BookDownloadWorker
+        WorkManager.getInstance(this).getWorkInfosByTagLiveData(BookDownloadWorker.WORK_TAG)
+                .observe(this, new Observer<List<WorkInfo>>() {
+                    @Override
+                    public void onChanged(List<WorkInfo> workInfos) {
+                        HashMap<String, WorkInfo> byBook = new HashMap<>();
+                        for (WorkInfo info : workInfos) {
+                            if (info.getState().isFinished()) {
+                                continue;
+                            }
+                            String bookId = BookDownloadWorker.bookIdOf(info);
+                            if (bookId != null) {
+                                byBook.put(bookId, info);
+                            }
+                        }
+                        adapterDownload.setWorkInfos(byBook);
+                        showStorage();
+                    }
+                });
+
+        binding.backBtn.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                onBackPressed();
+            }
+        });
+
+        binding.parallelMinusBtn.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                downloadQueue.setMaxParallel(downloadQueue.getMaxParallel() - 1);
+                showSettings();
+            }
+        });
+
+        binding.parallelPlusBtn.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                downloadQueue.setMaxParallel(downloadQueue.getMaxParallel() + 1);
+                showSettings();
+            }
+        });
+
+        binding.wifiSwitch.setOnCheckedChangeListener(new CompoundButton.OnCheckedChangeListener() {
+            @Override
+            public void onCheckedChanged(CompoundButton buttonView, boolean isChecked) {
+                if(isChecked != downloadQueue.isWifiOnly()){
+                    downloadQueue.setWifiOnly(isChecked);
+                }
+            }
+        });
+
+        binding.chargingSwitch.setOnCheckedChangeListener(new CompoundButton.OnCheckedChangeListener() {
+            @Override
+            public void onCheckedChanged(CompoundButton buttonView, boolean isChecked) {
+                if(isChecked != downloadQueue.isChargingOnly()){
+                    downloadQueue.setChargingOnly(isChecked);
+                }
+            }
+        });
+
+        binding.budgetMinusBtn.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                bookStore.setBudget(Math.max(BUDGET_STEP, bookStore.getBudget() - BUDGET_STEP));
+                showStorage();
+            }
+        });
+
+        binding.budgetPlusBtn.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                bookStore.setBudget(Math.min(BUDGET_MAX, bookStore.getBudget() + BUDGET_STEP));
+                showStorage();
+            }
+        });
+    }
+
+    @Override
+    protected void onStart() {
+        super.onStart();
+        downloadQueue.addListener(queueListener);
+        loadQueue();
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        downloadQueue.removeListener(queueListener);
+    }
+
+    private void loadQueue() {
+        itemArrayList.clear();
+        itemArrayList.addAll(downloadQueue.getItems());
+        adapterDownload.notifyDataSetChanged();
+        binding.emptyTv.setVisibility(itemArrayList.isEmpty() ? View.VISIBLE : View.GONE);
+    }
+
+    private void showSettings() {
+        binding.parallelTv.setText("" + downloadQueue.getMaxParallel());
+        binding.parallelMinusBtn.setEnabled(downloadQueue.getMaxParallel() > 1);
+        binding.parallelPlusBtn.setEnabled(downloadQueue.getMaxParallel() < DownloadQueue.MAX_PARALLEL_LIMIT);
+        binding.wifiSwitch.setChecked(downloadQueue.isWifiOnly());
+        binding.chargingSwitch.setChecked(downloadQueue.isChargingOnly());
+        showStorage();
+    }
+
+    private void showStorage() {
+        binding.storageTv.setText(MyApplication.formatBytes(bookStore.getTotalBytes()) + " / " + MyApplication.formatBytes(bookStore.getBudget()));
+    }
+}
@@ -10,12 +10,16 @@ import android.content.DialogInterface;
 import android.content.Intent;
 import android.net.Uri;
 import android.os.Bundle;
+import android.os.ParcelFileDescriptor;
 import android.text.TextUtils;
 import android.util.Log;
 import android.view.View;
 import android.widget.Toast;
 
+import com.pluto.bookapp.cover.BlurHash;
+import com.pluto.bookapp.cover.CoverRenderer;
 import com.pluto.bookapp.databinding.ActivityPdfAddBinding;
+import com.google.android.gms.tasks.Continuation;
 import com.google.android.gms.tasks.OnFailureListener;
 import com.google.android.gms.tasks.OnSuccessListener;
 import com.google.android.gms.tasks.Task;
@@ -26,11 +30,14 @@ import com.google.firebase.database.DatabaseReference;
 import com.google.firebase.database.FirebaseDatabase;
 import com.google.firebase.database.ValueEventListener;
 import com.google.firebase.storage.FirebaseStorage;
+import com.google.firebase.storage.StorageMetadata;
 import com.google.firebase.storage.StorageReference;
 import com.google.firebase.storage.UploadTask;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class PdfAddActivity extends AppCompatActivity {
 
@@ -47,6 +54,13 @@ public class PdfAddActivity extends AppCompatActivity {
 
     private  static  final String TAG = "ADD_PDF_TAG";
 
+    private final ExecutorService coverExecutor = Executors.newSingleThreadExecutor();
+
+    // placeholder cua anh bia, luu cung sach
+    private String coverBlurHash = "";
+    private int coverColor = 0;
+    private long pdfSize = 0;
+
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -96,6 +110,12 @@ public class PdfAddActivity extends AppCompatActivity {
 
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        coverExecutor.shutdown();
+    }
+
     private String title = "", description = "";
 
     private void validateData() {
@@ -137,14 +157,15 @@ public class PdfAddActivity extends AppCompatActivity {
                     @Override
                     public void onSuccess(UploadTask.TaskSnapshot taskSnapshot) {
                         Log.d(TAG, "onSuccess: get pdf url");
+                        pdfSize = taskSnapshot.getTotalByteCount();
                         
                         //lay url cua pdf
                         Task<Uri> uriTask = taskSnapshot.getStorage().getDownloadUrl();
                         while (!uriTask.isSuccessful());
                         String uploadPdfUrl = ""+uriTask.getResult();
                         
-                        //tai pdf len db
-                        uploadPdfInfoToDb(uploadPdfUrl,timestamp);
+                        //tao anh bia roi moi tai thong tin len db
+                        generateCover(uploadPdfUrl, timestamp);
                     }
                 })
                 .addOnFailureListener(new OnFailureListener() {
@@ -159,7 +180,89 @@ public class PdfAddActivity extends AppCompatActivity {
 
     }
 
-    private void uploadPdfInfoToDb(String uploadPdfUrl, long timestamp) {
+    private void generateCover(String uploadPdfUrl, long timestamp) {
+        Log.d(TAG, "generateCover: render first page");
+        progressDialog.setMessage("Generating cover...");
+
+        Uri uri = pdfUri;
+        coverExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                byte[] coverBytes = null;
+                int pageCount = 0;
+                String hash = "";
+                int color = 0;
+                try {
+                    ParcelFileDescriptor pfd = getContentResolver().openFileDescriptor(uri, "r");
+                    CoverRenderer.Result cover = CoverRenderer.render(pfd, CoverRenderer.COVER_WIDTH);
+                    coverBytes = CoverRenderer.encodeWebp(cover.bitmap);
+                    pageCount = cover.pageCount;
+                    // placeholder cho list trong luc cho tai anh bia
+                    hash = BlurHash.encode(cover.bitmap);
+                    color = CoverRenderer.dominantColor(cover.bitmap);
+                    cover.bitmap.recycle();
+                } catch (Exception e) {
+                    Log.d(TAG, "generateCover: failed "+e.getMessage());
+                }
+
+                byte[] bytes = coverBytes;
+                int pages = pageCount;
+                String blurHash = hash;
+                int dominantColor = color;
+                runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        coverBlurHash = blurHash;
+                        coverColor = dominantColor;
+                        if (bytes == null) {
+                            // khong tao duoc bia thi van luu sach, list se tu ve trang dau
+                            uploadPdfInfoToDb(uploadPdfUrl, "", pages, timestamp);
+                        } else {
+                            uploadCoverToStorage(bytes, uploadPdfUrl, pages, timestamp);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    private void uploadCoverToStorage(byte[] coverBytes, String uploadPdfUrl, int pageCount, long timestamp) {
+        Log.d(TAG, "uploadCoverToStorage: "+coverBytes.length+" bytes");
+        progressDialog.setMessage("Uploading cover...");
+
+        String coverPathName = "Book/" + timestamp + "_cover";
+
+        StorageMetadata metadata = new StorageMetadata.Builder()
+                .setContentType("image/webp")
+                .build();
+
+        StorageReference coverReference = FirebaseStorage.getInstance().getReference(coverPathName);
+        coverReference.putBytes(coverBytes, metadata)
+                .continueWithTask(new Continuation<UploadTask.TaskSnapshot, Task<Uri>>() {
+                    @Override
+                    public Task<Uri> then(@NonNull Task<UploadTask.TaskSnapshot> task) throws Exception {
+                        if (!task.isSuccessful()) {
+                            throw task.getException();
+                        }
+                        return coverReference.getDownloadUrl();
+                    }
+                })
+                .addOnSuccessListener(new OnSuccessListener<Uri>() {
+                    @Override
+                    public void onSuccess(Uri uri) {
+                        uploadPdfInfoToDb(uploadPdfUrl, ""+uri, pageCount, timestamp);
+                    }
+                })
+                .addOnFailureListener(new OnFailureListener() {
+                    @Override
+                    public void onFailure(@NonNull Exception e) {
+                        Log.d(TAG, "onFailure: cover upload fail "+e.getMessage());
+                        uploadPdfInfoToDb(uploadPdfUrl, "", pageCount, timestamp);
+                    }
+                });
+    }
+
+    private void uploadPdfInfoToDb(String uploadPdfUrl, String coverUrl, int pageCount, long timestamp) {
         progressDialog.setMessage("Uploading pdf info...");
 
         String uid = firebaseAuth.getUid();
@@ -172,6 +275,11 @@ public class PdfAddActivity extends AppCompatActivity {
         hashMap.put("description",description);
         hashMap.put("categoryId",""+selectedCategoryId);
         hashMap.put("url",""+uploadPdfUrl);
+        hashMap.put("coverUrl",""+coverUrl);
+        hashMap.put("pageCount",pageCount);
+        hashMap.put("blurHash",""+coverBlurHash);
+        hashMap.put("dominantColor",coverColor);
+        hashMap.put("size",pdfSize);
         hashMap.put("timestamp",timestamp);
         hashMap.put("viewCount",0);
         hashMap.put("downloadCount",0);
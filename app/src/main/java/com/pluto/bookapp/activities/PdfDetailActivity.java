@@ -1,13 +1,23 @@
 package com.pluto.bookapp.activities;
 
+import androidx.activity.result.ActivityResultCallback;
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.core.content.ContextCompat;
 
+import android.Manifest;
 import android.app.ProgressDialog;
+import android.content.ActivityNotFoundException;
+import android.content.DialogInterface;
 import android.content.Intent;
+import android.content.pm.PackageManager;
+import android.os.Build;
 import android.os.Bundle;
 import android.text.TextUtils;
+import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.widget.Toast;
@@ -18,6 +28,8 @@ import com.pluto.bookapp.adapter.AdapterComment;
 import com.pluto.bookapp.databinding.ActivityPdfDetailBinding;
 import com.pluto.bookapp.databinding.DialogCommentAddBinding;
 import com.pluto.bookapp.model.ModelComment;
+import com.pluto.bookapp.store.BookFileProvider;
+import com.pluto.bookapp.store.BookStore;
 import com.google.android.gms.tasks.OnFailureListener;
 import com.google.android.gms.tasks.OnSuccessListener;
 import com.google.firebase.auth.FirebaseAuth;
@@ -27,11 +39,14 @@ import com.google.firebase.database.DatabaseReference;
 import com.google.firebase.database.FirebaseDatabase;
 import com.google.firebase.database.ValueEventListener;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.HashMap;
 
 public class PdfDetailActivity extends AppCompatActivity {
 
+    private static final String TAG_SHARE = "SHARE_BOOK_TAG";
+
     private ActivityPdfDetailBinding binding;
 
     String bookId, bookTitle, bookUrl;
@@ -45,6 +60,9 @@ public class PdfDetailActivity extends AppCompatActivity {
     private ArrayList<ModelComment> commentArrayList;
     private AdapterComment adapterComment;
 
+    // lay sach vao kho truoc khi chia se, huy khi thoat man hinh
+    private BookStore.Request shareRequest;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -93,6 +111,42 @@ public class PdfDetailActivity extends AppCompatActivity {
             }
         });
 
+        //chia se hoac mo bang app khac, app kia doc thang file trong kho (BookFileProvider)
+        binding.shareBtn.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                String[] options = {"Share", "Open with..."};
+                new AlertDialog.Builder(PdfDetailActivity.this)
+                        .setItems(options, new DialogInterface.OnClickListener() {
+                            @Override
+                            public void onClick(DialogInterface dialog, int which) {
+                                shareBook(which == 1);
+                            }
+                        })
+                        .show();
+            }
+        });
+
+        //nut tai sach, chay nen nen xin quyen hien notification tien do
+        binding.downBtn.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                if(Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU
+                        && ContextCompat.checkSelfPermission(PdfDetailActivity.this, Manifest.permission.POST_NOTIFICATIONS) != PackageManager.PERMISSION_GRANTED){
+                    downloadPermissionLauncher.launch(Manifest.permission.POST_NOTIFICATIONS);
+                    MyApplication.downloadBook(PdfDetailActivity.this, bookId, bookTitle, bookUrl);
+                }
+                else if(Build.VERSION.SDK_INT < Build.VERSION_CODES.Q
+                        && ContextCompat.checkSelfPermission(PdfDetailActivity.this, Manifest.permission.WRITE_EXTERNAL_STORAGE) != PackageManager.PERMISSION_GRANTED){
+                    // Android 9 tro xuong can quyen ghi vao thu muc Download, tai sau khi user cho phep
+                    downloadPermissionLauncher.launch(Manifest.permission.WRITE_EXTERNAL_STORAGE);
+                }
+                else {
+                    MyApplication.downloadBook(PdfDetailActivity.this, bookId, bookTitle, bookUrl);
+                }
+            }
+        });
+
 
 //        show, add comment
         binding.addCommentBtn.setOnClickListener(new View.OnClickListener() {
@@ -220,8 +274,69 @@ public class PdfDetailActivity extends AppCompatActivity {
     }
 
     private static final String TAG_DOWN="DOWNLOAD_TAG";
+
+    // notification: khong cap van tai binh thuong, chi khong thay tien do.
+    // ghi bo nho (Android 9 tro xuong): cap roi moi tai
+    private ActivityResultLauncher<String> downloadPermissionLauncher = registerForActivityResult(
+            new ActivityResultContracts.RequestPermission(),
+            new ActivityResultCallback<Boolean>() {
+                @Override
+                public void onActivityResult(Boolean granted) {
+                    Log.d(TAG_DOWN, "onActivityResult: permission "+granted);
+                    if(Build.VERSION.SDK_INT < Build.VERSION_CODES.Q){
+                        if(granted){
+                            MyApplication.downloadBook(PdfDetailActivity.this, bookId, bookTitle, bookUrl);
+                        }
+                        else {
+                            Toast.makeText(PdfDetailActivity.this, "Storage permission is required to save the book", Toast.LENGTH_SHORT).show();
+                        }
+                    }
+                }
+            }
+    );
     
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if(shareRequest != null){
+            shareRequest.cancel();
+        }
+    }
+
+    private void shareBook(boolean openWith) {
+        progressDialog.setMessage("Preparing book..");
+        progressDialog.show();
+        // sach chua co trong kho (hoac da cu) thi tai vao kho truoc, khong chep them ban nao
+        shareRequest = MyApplication.getBookStore().open(bookId, bookUrl, false, new BookStore.Callback() {
+            @Override
+            public void onReady(File file) {
+                progressDialog.dismiss();
+                Intent intent = openWith
+                        ? BookFileProvider.viewIntent(PdfDetailActivity.this, bookId, bookTitle)
+                        : BookFileProvider.shareIntent(PdfDetailActivity.this, bookId, bookTitle);
+                try {
+                    startActivity(intent);
+                }
+                catch (ActivityNotFoundException e){
+                    Toast.makeText(PdfDetailActivity.this, "No app can open this book", Toast.LENGTH_SHORT).show();
+                }
+            }
+
+            @Override
+            public void onProgress(long bytes, long total) {
+                progressDialog.setMessage("Preparing book.. " + (total > 0 ? bytes * 100 / total : 0) + "%");
+            }
+
+            @Override
+            public void onError(Exception e) {
+                progressDialog.dismiss();
+                Log.d(TAG_SHARE, "onError: " + e.getMessage());
+                Toast.makeText(PdfDetailActivity.this, "Failed to prepare book due to " + e.getMessage(), Toast.LENGTH_SHORT).show();
+            }
+        });
+    }
+
     private void loadBookDetail() {
 
         DatabaseReference ref = FirebaseDatabase.getInstance().getReference("Books");
@@ -236,18 +351,28 @@ public class PdfDetailActivity extends AppCompatActivity {
                         String viewCount = ""+snapshot.child("viewCount").getValue();
                         String downloadCount = ""+snapshot.child("downloadCount").getValue();
                         bookUrl = ""+snapshot.child("url").getValue();
+                        String coverUrl = ""+snapshot.child("coverUrl").getValue();
+                        String pageCount = ""+snapshot.child("pageCount").getValue();
                         String timestamp = ""+snapshot.child("timestamp").getValue();
 
 
                         //khi load duoc url roi thi se hien thi lai
                         binding.downBtn.setVisibility(View.VISIBLE);
+                        binding.shareBtn.setVisibility(View.VISIBLE);
 
 
                         //format date
                         String date = MyApplication.formatTimeStamp(Long.parseLong(timestamp));
 
                         MyApplication.loadCategory(categoryId,binding.categoryTv);
-                        MyApplication.loadBannerPdf(bookUrl,bookUrl,binding.pdfView,binding.progressBar, binding.pageTv);
+                        if(!pageCount.equals("null") && !pageCount.equals("0")){
+                            binding.pageTv.setText(pageCount);
+                            MyApplication.loadBookCover(bookId,coverUrl,bookUrl,bookTitle,binding.coverIv,binding.progressBar);
+                        }
+                        else {
+                            // chua biet so trang thi ve tu pdf de lay luon so trang
+                            MyApplication.loadBannerPdf(bookId,bookUrl,bookTitle,binding.coverIv,binding.progressBar, binding.pageTv);
+                        }
                         MyApplication.loadPdfSize(bookUrl,bookUrl,binding.sizeTv);
 
                         binding.titleTv.setText(bookTitle);
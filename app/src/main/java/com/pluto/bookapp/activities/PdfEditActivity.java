@@ -12,6 +12,7 @@ import android.util.Log;
 import android.view.View;
 import android.widget.Toast;
 
+import com.pluto.bookapp.MyApplication;
 import com.pluto.bookapp.databinding.ActivityPdfEditBinding;
 import com.google.android.gms.tasks.OnFailureListener;
 import com.google.android.gms.tasks.OnSuccessListener;
@@ -112,6 +113,8 @@ public class PdfEditActivity extends AppCompatActivity {
                     @Override
                     public void onSuccess(Void unused) {
                         progressDialog.dismiss();
+                        // bo anh bia cu trong cache, lan sau se ve lai theo url moi
+                        MyApplication.getCoverCache().invalidate(bookId);
                         Toast.makeText(PdfEditActivity.this, "Update successfully", Toast.LENGTH_SHORT).show();
                     }
                 })
@@ -2,27 +2,41 @@ package com.pluto.bookapp.activities;
 
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
 import android.content.Intent;
+import android.graphics.Bitmap;
 import android.os.Bundle;
+import android.os.SystemClock;
 import android.util.Log;
 import android.view.View;
 import android.widget.Toast;
 
-import com.pluto.bookapp.Constants;
+import com.pluto.bookapp.DeviceProfile;
+import com.pluto.bookapp.MyApplication;
+import com.pluto.bookapp.adapter.AdapterPage;
+import com.pluto.bookapp.adapter.AdapterThumb;
 import com.pluto.bookapp.databinding.ActivityPdfViewBinding;
-import com.github.barteksc.pdfviewer.listener.OnErrorListener;
-import com.github.barteksc.pdfviewer.listener.OnPageChangeListener;
-import com.github.barteksc.pdfviewer.listener.OnPageErrorListener;
-import com.google.android.gms.tasks.OnFailureListener;
-import com.google.android.gms.tasks.OnSuccessListener;
+import com.pluto.bookapp.reader.PageCache;
+import com.pluto.bookapp.reader.PageRenderer;
+import com.pluto.bookapp.reader.ProgressiveBook;
+import com.pluto.bookapp.reader.ReadingPosition;
+import com.pluto.bookapp.reader.ThumbnailCache;
+import com.pluto.bookapp.reader.ThumbnailRenderer;
+import com.pluto.bookapp.reader.TileCache;
+import com.pluto.bookapp.reader.TileLayer;
+import com.pluto.bookapp.store.BookStore;
+import com.pluto.bookapp.store.MetadataCache;
 import com.google.firebase.database.DataSnapshot;
 import com.google.firebase.database.DatabaseError;
 import com.google.firebase.database.DatabaseReference;
 import com.google.firebase.database.FirebaseDatabase;
 import com.google.firebase.database.ValueEventListener;
-import com.google.firebase.storage.FirebaseStorage;
-import com.google.firebase.storage.StorageReference;
+import com.google.firebase.storage.StorageMetadata;
+
+import java.io.File;
+import java.io.IOException;
 
 public class PdfViewActivity extends AppCompatActivity {
 
@@ -32,6 +46,33 @@ public class PdfViewActivity extends AppCompatActivity {
 
     private static final String TAG = "PDF_VIEW_TAG";
 
+    private BookStore.Request bookRequest;
+    // sach chua co trong kho: mo khi moi tai xong trang dau
+    private ProgressiveBook progressiveBook;
+
+    // cache, kieu bitmap va so trang ve truoc theo may
+    private DeviceProfile deviceProfile;
+
+    private PageCache pageCache;
+    private PageRenderer pageRenderer;
+    private AdapterPage adapterPage;
+    private int currentPage = -1;
+
+    // thanh trang duoi man hinh
+    private ThumbnailCache thumbnailCache;
+    private ThumbnailRenderer thumbnailRenderer;
+    private AdapterThumb adapterThumb;
+
+    // o net khi phong to
+    private TileCache tileCache;
+    private TileLayer tileLayer;
+
+    private ReadingPosition readingPosition;
+    // file dang mo, kiem tra ban moi xong ma van la file nay thi khong mo lai
+    private File openedFile;
+    private long openStartMs;
+    private boolean firstPageShown;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -43,6 +84,52 @@ public class PdfViewActivity extends AppCompatActivity {
         bookTitle = intent.getStringExtra("bookTitle");
         Log.d(TAG, "onCreate: BookId: "+ bookId);
 
+        openStartMs = SystemClock.uptimeMillis();
+        // cache cua reader dang ky voi DeviceProfile, thu nho khi he thong thieu bo nho
+        deviceProfile = MyApplication.getDeviceProfile();
+        pageCache = new PageCache(deviceProfile.getPageCacheBytes());
+        tileCache = new TileCache(deviceProfile.getTileCacheBytes());
+        deviceProfile.register(pageCache);
+        deviceProfile.register(tileCache);
+        readingPosition = new ReadingPosition(this, bookId);
+
+        // trang dau tien dang hien la trang dang doc, dung cuon thi ve truoc cac trang xung quanh
+        binding.pagesRv.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+                int page = layoutManager.findFirstVisibleItemPosition();
+                if(page != RecyclerView.NO_POSITION && page != currentPage && pageRenderer != null){
+                    onPageChanged(page);
+                }
+            }
+
+            @Override
+            public void onScrollStateChanged(@NonNull RecyclerView recyclerView, int newState) {
+                if(newState == RecyclerView.SCROLL_STATE_IDLE && pageRenderer != null && currentPage >= 0){
+                    pageRenderer.prefetchAround(currentPage);
+                }
+            }
+        });
+
+        // chi ve anh thu nho cho cac o dang hien
+        binding.thumbsRv.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+                if(thumbnailRenderer != null){
+                    thumbnailRenderer.setVisibleRange(layoutManager.findFirstVisibleItemPosition(), layoutManager.findLastVisibleItemPosition());
+                }
+            }
+        });
+
+        // sach da co trong kho thi mo ngay o trang dang doc, khong cho Firebase.
+        // Kiem tra ban moi van chay sau, co ban moi thi mo lai o cung trang
+        File storedFile = MyApplication.getBookStore().getStoredFile(bookId);
+        if(storedFile != null){
+            Log.d(TAG, "onCreate: open stored copy at page "+readingPosition.get());
+            openBook(storedFile, readingPosition.get());
+        }
         loadBookDetails();
 
         binding.toolbarTitleTv.setText(bookTitle);
@@ -75,47 +162,298 @@ public class PdfViewActivity extends AppCompatActivity {
     }
 
     private void loadBookFromUrl(String url) {
-        Log.d(TAG, "loadBookFromUrl: Get PDF from storage");
-        StorageReference reference = FirebaseStorage.getInstance().getReferenceFromUrl(url);
-        reference.getBytes(Constants.MAX_BYTES_PDF)
-                .addOnSuccessListener(new OnSuccessListener<byte[]>() {
-                    @Override
-                    public void onSuccess(byte[] bytes) {
-                        
-                        binding.pdfView.fromBytes(bytes)
-                                .swipeHorizontal(false)
-                                .onPageChange(new OnPageChangeListener() {
-                                    @Override
-                                    public void onPageChanged(int page, int pageCount) {
-
-                                        int currentPage = (page + 1);// bat dau tu 0 nen phai + 1
-
-                                        binding.toolbarSubtitleTv.setText(currentPage + "/" + pageCount);
-                                        Log.d(TAG, "onPageChanged: "+ currentPage + "/" + pageCount);
-                                    }
-                                })
-                                .onError(new OnErrorListener() {
-                                    @Override
-                                    public void onError(Throwable t) {
-                                        Toast.makeText(PdfViewActivity.this, ""+t.getMessage(), Toast.LENGTH_SHORT).show();
-                                    }
-                                })
-                                .onPageError(new OnPageErrorListener() {
-                                    @Override
-                                    public void onPageError(int page, Throwable t) {
-                                        Toast.makeText(PdfViewActivity.this, "Error on page "+ page + " " + t.getMessage(), Toast.LENGTH_SHORT).show();
-                                    }
-                                })
-                                .load();
-
-                        binding.progressBar.setVisibility(View.GONE);
-                    }
-                })
-                .addOnFailureListener(new OnFailureListener() {
+        if(openedFile != null){
+            // dang doc ban trong kho, kiem tra ban moi
+            openFromStore(url);
+            return;
+        }
+        MyApplication.getMetadataCache().get(url, new MetadataCache.Callback() {
+            @Override
+            public void onMetadata(StorageMetadata metadata) {
+                if(isDestroyed()){
+                    return;
+                }
+                if(MyApplication.getBookStore().getCurrentFile(bookId, url, metadata) == null && metadata.getSizeBytes() > 0){
+                    openProgressive(url, metadata);
+                }
+                else {
+                    openFromStore(url);
+                }
+            }
+
+            @Override
+            public void onError(Exception e) {
+                Log.d(TAG, "loadBookFromUrl: "+e.getMessage());
+                if(!isDestroyed()){
+                    // kho sach tu xu ly mat mang
+                    openFromStore(url);
+                }
+            }
+        });
+    }
+
+    // sach chua co: tai theo tung doan, mo ngay khi du trang dau (pdf linearized)
+    private void openProgressive(String url, StorageMetadata metadata) {
+        Log.d(TAG, "openProgressive: "+metadata.getSizeBytes()+" bytes");
+        progressiveBook = new ProgressiveBook(MyApplication.getBookStore(), bookId, url, metadata);
+        progressiveBook.start(new ProgressiveBook.Listener() {
+            @Override
+            public void onOpenable(File file) {
+                Log.d(TAG, "onOpenable: open while downloading");
+                openBook(file, readingPosition.get());
+                setPageSource(progressiveBook);
+            }
+
+            @Override
+            public void onPagesAvailable() {
+                if(pageRenderer != null){
+                    pageRenderer.retryWaiting();
+                    thumbnailRenderer.retryWaiting();
+                }
+            }
+
+            @Override
+            public void onProgress(long bytes, long total) {
+                if(total > 0 && openedFile == null){
+                    binding.toolbarSubtitleTv.setText("Loading "+(bytes * 100 / total)+"%");
+                }
+            }
+
+            @Override
+            public void onComplete(File file) {
+                progressiveBook = null;
+                if(pageRenderer != null && openedFile != null){
+                    // RendererPool giu descriptor cua file da doi ten, renderer mo sau van doc duoc
+                    Log.d(TAG, "onComplete: download finished while reading");
+                    openedFile = file;
+                    setPageSource(null);
+                }
+                else {
+                    // tai xong truoc khi kip mo
+                    openBook(file, readingPosition.get());
+                }
+            }
+
+            @Override
+            public void onNotLinearized() {
+                Log.d(TAG, "onNotLinearized: download whole file");
+                progressiveBook = null;
+                openFromStore(url);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                Log.d(TAG, "onError: "+e.getMessage());
+                progressiveBook = null;
+                if(openedFile != null){
+                    Toast.makeText(PdfViewActivity.this, "Cannot load remaining pages "+e.getMessage(), Toast.LENGTH_SHORT).show();
+                    return;
+                }
+                // server khong ho tro Range...: tai ca file nhu truoc
+                openFromStore(url);
+            }
+        });
+    }
+
+    // sach dang tai: chi ve trang da tai xong
+    private void setPageSource(PageRenderer.PageSource source) {
+        if(pageRenderer != null){
+            pageRenderer.setPageSource(source);
+            thumbnailRenderer.setPageSource(source);
+            tileLayer.setPageSource(source);
+        }
+    }
+
+    private void openFromStore(String url) {
+        Log.d(TAG, "openFromStore: Get PDF from book store");
+
+        // kho sach offline: da co thi mo ngay, chua co thi tai xuong (khong ghim, het cho se bi don)
+        bookRequest = MyApplication.getBookStore().open(bookId, url, false, new BookStore.Callback() {
+            @Override
+            public void onReady(File file) {
+                if(file.equals(openedFile)){
+                    Log.d(TAG, "onReady: stored copy is current");
+                    return;
+                }
+                Log.d(TAG, "onReady: open local file "+file.length()+" bytes");
+                openBook(file, openedFile != null ? currentPage : readingPosition.get());
+            }
+
+            @Override
+            public void onProgress(long bytes, long total) {
+                // dang doc ban cu thi tai ban moi o nen, khong doi subtitle
+                if(total > 0 && openedFile == null){
+                    binding.toolbarSubtitleTv.setText("Loading "+(bytes * 100 / total)+"%");
+                }
+            }
+
+            @Override
+            public void onError(Exception e) {
+                Log.d(TAG, "onError: "+e.getMessage());
+                if(openedFile != null){
+                    // van doc ban trong kho
+                    return;
+                }
+                binding.progressBar.setVisibility(View.GONE);
+                Toast.makeText(PdfViewActivity.this, "Cannot load book "+e.getMessage(), Toast.LENGTH_SHORT).show();
+            }
+        });
+    }
+
+    // PdfRenderer doc thang file tren dia, heap chi giu bitmap cac trang trong PageCache
+    private void openBook(File bookFile, int startPage) {
+        if(pageRenderer != null){
+            // mo lai ban moi tai xong
+            binding.pagesRv.setTileLayer(null);
+            tileLayer.close();
+            thumbnailRenderer.close();
+            pageRenderer.close();
+            pageRenderer = null;
+            pageCache.evictAll();
+            tileCache.evictAll();
+        }
+        try {
+            pageRenderer = new PageRenderer(bookFile, pageCache, deviceProfile.getRendererPoolSize());
+            pageRenderer.setBitmapConfig(deviceProfile.getPageConfig());
+            openedFile = bookFile;
+            // ban moi (generation khac) co thu muc anh thu nho rieng
+            if(thumbnailCache != null){
+                deviceProfile.unregister(thumbnailCache);
+            }
+            thumbnailCache = new ThumbnailCache(this, ThumbnailCache.keyOf(bookFile), deviceProfile.getThumbnailCacheBytes());
+            deviceProfile.register(thumbnailCache);
+            thumbnailRenderer = new ThumbnailRenderer(pageRenderer.getPool(), thumbnailCache);
+            tileLayer = new TileLayer(pageRenderer.getPool(), tileCache);
+            tileLayer.setBitmapConfig(deviceProfile.getPageConfig());
+        }
+        catch (IOException | RuntimeException e){
+            binding.progressBar.setVisibility(View.GONE);
+            Log.d(TAG, "openBook: "+e.getMessage());
+            Toast.makeText(PdfViewActivity.this, "Cannot open book "+e.getMessage(), Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        pageRenderer.setListener(new PageRenderer.Listener() {
+            @Override
+            public void onPageRendered(int page, Bitmap bitmap) {
+                if(!firstPageShown){
+                    firstPageShown = true;
+                    Log.d(TAG, "onPageRendered: first page after "+(SystemClock.uptimeMillis() - openStartMs)+"ms");
+                }
+                if(adapterPage != null){
+                    adapterPage.onPageRendered(binding.pagesRv, page, bitmap);
+                }
+            }
+
+            @Override
+            public void onPageError(int page, Exception e) {
+                Toast.makeText(PdfViewActivity.this, "Error on page "+ (page + 1) + " " + e.getMessage(), Toast.LENGTH_SHORT).show();
+            }
+        });
+
+        thumbnailRenderer.setListener(new ThumbnailRenderer.Listener() {
+            @Override
+            public void onThumbnail(int page, Bitmap bitmap) {
+                if(adapterThumb != null){
+                    adapterThumb.onThumbnail(binding.thumbsRv, page, bitmap);
+                }
+            }
+        });
+
+        PageRenderer renderer = pageRenderer;
+        // can chieu rong that cua danh sach de ve trang
+        binding.pagesRv.post(new Runnable() {
+            @Override
+            public void run() {
+                if(isDestroyed() || renderer != pageRenderer){
+                    return;
+                }
+                int width = binding.pagesRv.getWidth();
+                if(width <= 0){
+                    width = getResources().getDisplayMetrics().widthPixels;
+                }
+                pageRenderer.setWidth(width);
+
+                // N trang sau + N trang truoc + trang dang hien phai vua PageCache
+                int fit = pageCache.pagesThatFit(pageRenderer.getPageBytes());
+                pageRenderer.setPrefetchDepth(Math.min(deviceProfile.getMaxPrefetch(), (fit - 2) / 2));
+                Log.d(TAG, "openBook: "+pageRenderer.getPageCount()+" pages, "+fit+" fit in cache, prefetch "+pageRenderer.getPrefetchDepth());
+
+                adapterPage = new AdapterPage(PdfViewActivity.this, pageRenderer, pageCache, thumbnailCache);
+                binding.pagesRv.setAdapter(adapterPage);
+                binding.pagesRv.setTileLayer(tileLayer);
+                binding.progressBar.setVisibility(View.GONE);
+
+                adapterThumb = new AdapterThumb(PdfViewActivity.this, pageRenderer.getPageCount(), thumbnailRenderer, thumbnailCache, new AdapterThumb.OnPageClickListener() {
                     @Override
-                    public void onFailure(@NonNull Exception e) {
-                        binding.progressBar.setVisibility(View.GONE);
+                    public void onPageClick(int page) {
+                        jumpToPage(page);
                     }
                 });
+                binding.thumbsRv.setAdapter(adapterThumb);
+                binding.thumbsRv.setVisibility(View.VISIBLE);
+
+                // sach upload lai co the it trang hon
+                int page = Math.max(0, Math.min(startPage, pageRenderer.getPageCount() - 1));
+                ((LinearLayoutManager) binding.pagesRv.getLayoutManager()).scrollToPositionWithOffset(page, 0);
+                onPageChanged(page);
+                pageRenderer.prefetchAround(page);
+            }
+        });
+    }
+
+    // trang dich duoc ve day du truoc, cac trang cho ve khac xa trang dich nen bi bo
+    private void jumpToPage(int page) {
+        Log.d(TAG, "jumpToPage: "+(page + 1));
+        pageRenderer.setCurrentPage(page);
+        if(!pageCache.contains(page)){
+            pageRenderer.request(page);
+        }
+        ((LinearLayoutManager) binding.pagesRv.getLayoutManager()).scrollToPositionWithOffset(page, 0);
+        onPageChanged(page);
+    }
+
+    private void onPageChanged(int page) {
+        currentPage = page;
+        pageRenderer.setCurrentPage(page);
+        if(adapterThumb != null){
+            adapterThumb.setCurrentPage(page);
+            binding.thumbsRv.scrollToPosition(page);
+        }
+
+        int pageCount = pageRenderer.getPageCount();
+        binding.toolbarSubtitleTv.setText((page + 1) + "/" + pageCount);// bat dau tu 0 nen phai + 1
+        Log.d(TAG, "onPageChanged: "+ (page + 1) + "/" + pageCount);
+
+        readingPosition.save(page);
+    }
+
+    @Override
+    protected void onPause() {
+        super.onPause();
+        readingPosition.flush();
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        deviceProfile.unregister(pageCache);
+        deviceProfile.unregister(tileCache);
+        if(thumbnailCache != null){
+            deviceProfile.unregister(thumbnailCache);
+        }
+        // dong man hinh khi dang tai thi huy, kho sach tu xoa file .part
+        if(bookRequest != null){
+            bookRequest.cancel();
+        }
+        // file dang tai giu lai, lan mo sau tai tiep
+        if(progressiveBook != null){
+            progressiveBook.cancel();
+        }
+        if(pageRenderer != null){
+            tileLayer.close();
+            thumbnailRenderer.close();
+            pageRenderer.close();
+        }
     }
 }
\ No newline at end of file
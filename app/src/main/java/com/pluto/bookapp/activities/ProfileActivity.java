@@ -10,6 +10,7 @@ import android.content.Intent;
 import android.os.Bundle;
 import android.util.Log;
 import android.view.View;
+import android.widget.CompoundButton;
 import android.widget.Toast;
 
 import com.bumptech.glide.Glide;
@@ -96,6 +97,18 @@ public class ProfileActivity extends AppCompatActivity {
             }
         });
 
+        //bat/tat tai san sach yeu thich de doc offline (chi tai qua Wi-Fi)
+        binding.offlineSwitch.setChecked(MyApplication.getFavoriteSync().isEnabled());
+        binding.offlineSwitch.setOnCheckedChangeListener(new CompoundButton.OnCheckedChangeListener() {
+            @Override
+            public void onCheckedChanged(CompoundButton buttonView, boolean isChecked) {
+                MyApplication.getFavoriteSync().setEnabled(isChecked);
+                if(isChecked){
+                    Toast.makeText(ProfileActivity.this, "Favorite books will download over Wi-Fi", Toast.LENGTH_SHORT).show();
+                }
+            }
+        });
+
     }
 
     private void emailVerifycationDialog() {
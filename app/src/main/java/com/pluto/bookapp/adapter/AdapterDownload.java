@@ -0,0 +1,157 @@
+package com.pluto.bookapp.adapter;
+
+import android.content.Context;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ImageButton;
+import android.widget.ProgressBar;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.work.Data;
+import androidx.work.WorkInfo;
+
+import com.pluto.bookapp.MyApplication;
+import com.pluto.bookapp.databinding.RowDownloadBinding;
+import com.pluto.bookapp.store.DownloadQueue;
+import com.pluto.bookapp.worker.BookDownloadWorker;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+public class AdapterDownload extends RecyclerView.Adapter<AdapterDownload.HolderDownload> {
+
+    private Context context;
+    private ArrayList<DownloadQueue.Item> itemArrayList;
+
+    // bookId -> WorkInfo moi nhat cua worker tai sach do
+    private HashMap<String, WorkInfo> workInfos = new HashMap<>();
+
+    private RowDownloadBinding binding;
+
+    public AdapterDownload(Context context, ArrayList<DownloadQueue.Item> itemArrayList) {
+        this.context = context;
+        this.itemArrayList = itemArrayList;
+    }
+
+    public void setWorkInfos(HashMap<String, WorkInfo> workInfos) {
+        this.workInfos = workInfos;
+        notifyDataSetChanged();
+    }
+
+    @NonNull
+    @Override
+    public HolderDownload onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        binding = RowDownloadBinding.inflate(LayoutInflater.from(context), parent, false);
+
+        return new HolderDownload(binding.getRoot());
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull HolderDownload holder, int position) {
+
+        DownloadQueue.Item item = itemArrayList.get(position);
+        DownloadQueue queue = MyApplication.getDownloadQueue();
+
+        holder.titleTv.setText(item.title);
+        showStatus(holder, item, workInfos.get(item.bookId), queue);
+
+        holder.upBtn.setVisibility(position > 0 ? View.VISIBLE : View.INVISIBLE);
+        holder.downBtn.setVisibility(position < itemArrayList.size() - 1 ? View.VISIBLE : View.INVISIBLE);
+
+        holder.upBtn.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                int from = holder.getBindingAdapterPosition();
+                if(from > 0){
+                    queue.move(from, from - 1);
+                }
+            }
+        });
+
+        holder.downBtn.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                int from = holder.getBindingAdapterPosition();
+                if(from != RecyclerView.NO_POSITION && from < itemArrayList.size() - 1){
+                    queue.move(from, from + 1);
+                }
+            }
+        });
+
+        holder.cancelBtn.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                queue.cancel(item.bookId);
+            }
+        });
+    }
+
+    private void showStatus(HolderDownload holder, DownloadQueue.Item item, WorkInfo info, DownloadQueue queue) {
+        if(!item.isDispatched() || info == null){
+            holder.statusTv.setText("Waiting");
+            holder.progressBar.setIndeterminate(false);
+            holder.progressBar.setProgress(0);
+            return;
+        }
+
+        if(info.getState() == WorkInfo.State.RUNNING){
+            Data progress = info.getProgress();
+            long bytes = progress.getLong(BookDownloadWorker.KEY_BYTES, 0);
+            long total = progress.getLong(BookDownloadWorker.KEY_TOTAL, 0);
+            if(total > 0){
+                int percent = (int) (bytes * 100 / total);
+                holder.statusTv.setText(percent + "%  " + MyApplication.formatBytes(bytes) + " / " + MyApplication.formatBytes(total));
+                holder.progressBar.setIndeterminate(false);
+                holder.progressBar.setProgress(percent);
+            }
+            else {
+                holder.statusTv.setText("Starting...");
+                holder.progressBar.setIndeterminate(true);
+            }
+            return;
+        }
+
+        // da giao nhung chua chay: dang cho dieu kien hoac cho thu lai
+        String status = "Waiting for network";
+        if(queue.isWifiOnly() && queue.isChargingOnly()){
+            status = "Waiting for Wi-Fi and charger";
+        }
+        else if(queue.isWifiOnly()){
+            status = "Waiting for Wi-Fi";
+        }
+        else if(queue.isChargingOnly()){
+            status = "Waiting for charger";
+        }
+        if(info.getRunAttemptCount() > 0){
+            status += " (retry " + info.getRunAttemptCount() + ")";
+        }
+        holder.statusTv.setText(status);
+        holder.progressBar.setIndeterminate(false);
+    }
+
+    @Override
+    public int getItemCount() {
+        return itemArrayList.size();
+    }
+
+    class HolderDownload extends RecyclerView.ViewHolder{
+
+        TextView titleTv, statusTv;
+        ProgressBar progressBar;
+        ImageButton upBtn, downBtn, cancelBtn;
+
+        public HolderDownload(@NonNull View itemView) {
+            super(itemView);
+
+            titleTv = binding.titleTv;
+            statusTv = binding.statusTv;
+            progressBar = binding.progressBar;
+            upBtn = binding.upBtn;
+            downBtn = binding.downBtn;
+            cancelBtn = binding.cancelBtn;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.pluto.bookapp.adapter;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+import android.widget.ProgressBar;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.pluto.bookapp.databinding.RowPageBinding;
+import com.pluto.bookapp.reader.PageCache;
+import com.pluto.bookapp.reader.PageRenderer;
+import com.pluto.bookapp.reader.RenderStats;
+import com.pluto.bookapp.reader.ThumbnailCache;
+
+// Moi dong la mot trang sach. Trang co san trong PageCache (render-ahead) thi hien ngay,
+// chua co thi hien anh thu nho (neu co) voi progress va nho PageRenderer ve.
+public class AdapterPage extends RecyclerView.Adapter<AdapterPage.HolderPage> {
+
+    private Context context;
+    private PageRenderer pageRenderer;
+    private PageCache pageCache;
+    private ThumbnailCache thumbnailCache;
+
+    private RowPageBinding binding;
+
+    public AdapterPage(Context context, PageRenderer pageRenderer, PageCache pageCache, ThumbnailCache thumbnailCache) {
+        this.context = context;
+        this.pageRenderer = pageRenderer;
+        this.pageCache = pageCache;
+        this.thumbnailCache = thumbnailCache;
+    }
+
+    @NonNull
+    @Override
+    public HolderPage onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        binding = RowPageBinding.inflate(LayoutInflater.from(context), parent, false);
+
+        return new HolderPage(binding.getRoot());
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull HolderPage holder, int position) {
+        // chieu cao theo ty le trang de thanh cuon khong nhay khi trang ve xong
+        int width = pageRenderer.getWidth();
+        ViewGroup.LayoutParams params = holder.itemView.getLayoutParams();
+        params.height = Math.round(width * pageRenderer.getRatio(position));
+        holder.itemView.setLayoutParams(params);
+
+        Bitmap bitmap = pageCache.get(position);
+        if (bitmap != null) {
+            RenderStats.recordHit();
+            showPage(holder, bitmap);
+        } else {
+            RenderStats.recordMiss();
+            // nhay toi trang xa: anh mo tam trong luc ve trang that
+            holder.pageIv.setImageBitmap(thumbnailCache.getFromMemory(position));
+            holder.progressBar.setVisibility(View.VISIBLE);
+            pageRenderer.request(position);
+        }
+    }
+
+    // PageRenderer ve xong mot trang
+    public void onPageRendered(RecyclerView recyclerView, int page, Bitmap bitmap) {
+        HolderPage holder = (HolderPage) recyclerView.findViewHolderForAdapterPosition(page);
+        if (holder == null) {
+            return;
+        }
+        int height = Math.round(pageRenderer.getWidth() * pageRenderer.getRatio(page));
+        if (holder.itemView.getLayoutParams().height != height) {
+            // trang kich thuoc khac trang dau
+            notifyItemChanged(page);
+        } else {
+            showPage(holder, bitmap);
+        }
+    }
+
+    private void showPage(HolderPage holder, Bitmap bitmap) {
+        holder.pageIv.setImageBitmap(bitmap);
+        holder.progressBar.setVisibility(View.GONE);
+    }
+
+    @Override
+    public int getItemCount() {
+        return pageRenderer.getPageCount();
+    }
+
+    class HolderPage extends RecyclerView.ViewHolder{
+
+        ImageView pageIv;
+        ProgressBar progressBar;
+
+        public HolderPage(@NonNull View itemView) {
+            super(itemView);
+
+            pageIv = binding.pageIv;
+            progressBar = binding.progressBar;
+        }
+    }
+}
@@ -11,23 +11,25 @@ import android.view.ViewGroup;
 import android.widget.Filter;
 import android.widget.Filterable;
 import android.widget.ImageButton;
+import android.widget.ImageView;
 import android.widget.ProgressBar;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 
+import com.bumptech.glide.Glide;
 import com.pluto.bookapp.MyApplication;
+import com.pluto.bookapp.RequestToken;
 import com.pluto.bookapp.activities.PdfDetailActivity;
 import com.pluto.bookapp.activities.PdfEditActivity;
 import com.pluto.bookapp.databinding.RowPdfAdminBinding;
 import com.pluto.bookapp.filter.FilterPdfAdmin;
 import com.pluto.bookapp.model.ModelPdf;
-import com.github.barteksc.pdfviewer.PDFView;
 
 import java.util.ArrayList;
 
-public class AdapterPdfAdmin extends RecyclerView.Adapter<AdapterPdfAdmin.HolderPdfAdmin> implements Filterable {
+public class AdapterPdfAdmin extends RecyclerView.Adapter<AdapterPdfAdmin.HolderPdfAdmin> implements Filterable, BookListPreloader.BookProvider {
 
     private final Context context;
     public ArrayList<ModelPdf> pdfArrayList, filterList;
@@ -40,6 +42,10 @@ public class AdapterPdfAdmin extends RecyclerView.Adapter<AdapterPdfAdmin.Holder
 
     public static final String TAG = "PDF_ADMIN";
 
+    private final CoverLoadScheduler scheduler = new CoverLoadScheduler();
+    private final FlingLoadController flingController = new FlingLoadController(scheduler);
+    private final BookListPreloader preloader = new BookListPreloader(scheduler, this);
+
 
     public AdapterPdfAdmin(Context context, ArrayList<ModelPdf> pdfArrayList) {
         this.context = context;
@@ -63,6 +69,8 @@ public class AdapterPdfAdmin extends RecyclerView.Adapter<AdapterPdfAdmin.Holder
     @Override
     public void onBindViewHolder(@NonNull HolderPdfAdmin holder, int position) {
 
+        holder.token.reset();
+
         //lay du lieu
         ModelPdf model = pdfArrayList.get(position);
         String pdfId = model.getId();
@@ -70,6 +78,7 @@ public class AdapterPdfAdmin extends RecyclerView.Adapter<AdapterPdfAdmin.Holder
         String title = model.getTitle();
         String description = model.getDescription();
         String pdfUrl = model.getUrl();
+        String coverUrl = model.getCoverUrl();
         long timestamp = model.getTimestamp();
 
         String formatDate = MyApplication.formatTimeStamp(timestamp);
@@ -80,9 +89,10 @@ public class AdapterPdfAdmin extends RecyclerView.Adapter<AdapterPdfAdmin.Holder
         holder.descriptionTv.setText(description);
         holder.dateTv.setText(formatDate);
 
-        MyApplication.loadCategory(""+categoryId, holder.categoryTv);
-        MyApplication.loadBannerPdf(""+pdfUrl,""+title,holder.pdfView,holder.progressBar, null);
-        MyApplication.loadPdfSize(""+pdfUrl,""+title,holder.sizeTv);
+        MyApplication.loadCategory(""+categoryId, holder.categoryTv, holder.token);
+        // lay tu cache truoc, phai tai qua mang thi xep vao hang doi chung cua danh sach
+        BookRowLoader.loadCover(scheduler, holder.token, position, pdfId, coverUrl, ""+pdfUrl, ""+title, model.getBlurHash(), model.getDominantColor(), holder.coverIv, holder.progressBar);
+        BookRowLoader.loadSize(scheduler, holder.token, position, ""+pdfUrl, ""+title, model.getSize(), holder.sizeTv);
 
         //bam vao hien option sua xoa
         holder.moreBtn.setOnClickListener(new View.OnClickListener() {
@@ -142,6 +152,40 @@ public class AdapterPdfAdmin extends RecyclerView.Adapter<AdapterPdfAdmin.Holder
 
 
 
+    @Override
+    public void onAttachedToRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onAttachedToRecyclerView(recyclerView);
+        scheduler.attach(recyclerView);
+        recyclerView.addOnScrollListener(flingController);
+        recyclerView.addOnScrollListener(preloader);
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onDetachedFromRecyclerView(recyclerView);
+        recyclerView.removeOnScrollListener(flingController);
+        recyclerView.removeOnScrollListener(preloader);
+        scheduler.detach();
+    }
+
+    @Override
+    public int getBookCount() {
+        return pdfArrayList.size();
+    }
+
+    @Override
+    public ModelPdf getBook(int position) {
+        return pdfArrayList.get(position);
+    }
+
+    @Override
+    public void onViewRecycled(@NonNull HolderPdfAdmin holder) {
+        super.onViewRecycled(holder);
+        // huy cac request con dang chay cua sach cu
+        holder.token.cancel();
+        Glide.with(holder.coverIv).clear(holder.coverIv);
+    }
+
     @Override
     public int getItemCount() {
         return pdfArrayList.size();
@@ -158,16 +202,18 @@ public class AdapterPdfAdmin extends RecyclerView.Adapter<AdapterPdfAdmin.Holder
     class HolderPdfAdmin extends RecyclerView.ViewHolder{
 
 
-        PDFView pdfView;
+        ImageView coverIv;
         ProgressBar progressBar;
         TextView titletv, descriptionTv, categoryTv, sizeTv, dateTv;
 
         ImageButton moreBtn;
 
+        final RequestToken token = new RequestToken();
+
         public HolderPdfAdmin(@NonNull View itemView) {
             super(itemView);
 
-            pdfView = binding.pdfView;
+            coverIv = binding.coverIv;
             progressBar = binding.progressBar;
             titletv = binding.titleTv;
             descriptionTv = binding.descriptionTv;
@@ -7,17 +7,19 @@ import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.ImageButton;
+import android.widget.ImageView;
 import android.widget.ProgressBar;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 
+import com.bumptech.glide.Glide;
 import com.pluto.bookapp.MyApplication;
+import com.pluto.bookapp.RequestToken;
 import com.pluto.bookapp.activities.PdfDetailActivity;
 import com.pluto.bookapp.databinding.RowFavoriteBookBinding;
 import com.pluto.bookapp.model.ModelPdf;
-import com.github.barteksc.pdfviewer.PDFView;
 import com.google.firebase.database.DataSnapshot;
 import com.google.firebase.database.DatabaseError;
 import com.google.firebase.database.DatabaseReference;
@@ -29,6 +31,9 @@ import java.util.ArrayList;
 public class AdapterPdfFavorite extends RecyclerView.Adapter<AdapterPdfFavorite.HolderPdfFavorite> {
 
     private static final String TAG = "ADAPTER_PDF_FAVORITE";
+
+    private final CoverLoadScheduler scheduler = new CoverLoadScheduler();
+    private final FlingLoadController flingController = new FlingLoadController(scheduler);
     private Context context;
     private ArrayList<ModelPdf> pdfArrayList;
 
@@ -52,11 +57,13 @@ public class AdapterPdfFavorite extends RecyclerView.Adapter<AdapterPdfFavorite.
     @Override
     public void onBindViewHolder(@NonNull HolderPdfFavorite holder, int position) {
 
+        holder.token.reset();
+
         ModelPdf model = pdfArrayList.get(position);
 
         Log.d(TAG, "cuon sach co url "+ model.getUrl());
 
-        loadBookDetail(model, holder);
+        loadBookDetail(model, holder, position);
 
         holder.itemView.setOnClickListener(new View.OnClickListener() {
             @Override
@@ -76,55 +83,97 @@ public class AdapterPdfFavorite extends RecyclerView.Adapter<AdapterPdfFavorite.
 
     }
 
-    private void loadBookDetail(ModelPdf model, HolderPdfFavorite holder) {
+    private void loadBookDetail(ModelPdf model, HolderPdfFavorite holder, int position) {
     
         String bookId = model.getId();
         Log.d(TAG, "loadBookDetail: Book detail in favorite by bookid: "+bookId);
 
-        DatabaseReference ref = FirebaseDatabase.getInstance().getReference("Books");
-        ref.child(bookId)
-                .addListenerForSingleValueEvent(new ValueEventListener() {
-                    @Override
-                    public void onDataChange(@NonNull DataSnapshot snapshot) {
-
-                        String bookTitle = ""+snapshot.child("title").getValue();
-                        String description = ""+snapshot.child("description").getValue();
-                        String categoryId = ""+snapshot.child("categoryId").getValue();
-                        String bookUrl = ""+snapshot.child("url").getValue();
-                        String timestamp = ""+snapshot.child("timestamp").getValue();
-                        String uid = ""+snapshot.child("uid").getValue();
-                        String viewCount = ""+snapshot.child("viewCount").getValue();
-                        String downloadCount = ""+snapshot.child("downloadCount").getValue();
-
-                        Log.d(TAG, "url: "+ bookUrl);
-
-                        model.setFavorite(true);
-                        model.setTitle(bookTitle);
-                        model.setCategoryId(categoryId);
-                        model.setDescription(description);
-                        model.setUrl(bookUrl);
-                        model.setTimestamp(Long.parseLong(timestamp));
-                        model.setUid(uid);
+        int gen = holder.token.current();
 
-                        String date = MyApplication.formatTimeStamp(Long.parseLong(timestamp));
+        DatabaseReference ref = FirebaseDatabase.getInstance().getReference("Books").child(bookId);
+        ValueEventListener listener = new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot snapshot) {
+                if(!holder.token.isCurrent(gen)){
+                    return;
+                }
+
+                String bookTitle = ""+snapshot.child("title").getValue();
+                String description = ""+snapshot.child("description").getValue();
+                String categoryId = ""+snapshot.child("categoryId").getValue();
+                String bookUrl = ""+snapshot.child("url").getValue();
+                String coverUrl = ""+snapshot.child("coverUrl").getValue();
+                String blurHash = ""+snapshot.child("blurHash").getValue();
+                Long color = snapshot.child("dominantColor").getValue(Long.class);
+                long dominantColor = color == null ? 0 : color;
+                Long sizeValue = snapshot.child("size").getValue(Long.class);
+                long size = sizeValue == null ? 0 : sizeValue;
+                String timestamp = ""+snapshot.child("timestamp").getValue();
+                String uid = ""+snapshot.child("uid").getValue();
+                String viewCount = ""+snapshot.child("viewCount").getValue();
+                String downloadCount = ""+snapshot.child("downloadCount").getValue();
+
+                Log.d(TAG, "url: "+ bookUrl);
+
+                model.setFavorite(true);
+                model.setTitle(bookTitle);
+                model.setCategoryId(categoryId);
+                model.setDescription(description);
+                model.setUrl(bookUrl);
+                model.setCoverUrl(coverUrl);
+                model.setTimestamp(Long.parseLong(timestamp));
+                model.setUid(uid);
+
+                String date = MyApplication.formatTimeStamp(Long.parseLong(timestamp));
+
+
+                MyApplication.loadCategory(""+categoryId, holder.categoryTv, holder.token);
+                // lay tu cache truoc, phai tai qua mang thi xep vao hang doi chung cua danh sach
+                BookRowLoader.loadCover(scheduler, holder.token, position, bookId, coverUrl, ""+bookUrl, ""+bookTitle, blurHash, dominantColor, holder.coverIv, holder.progressBar);
+                BookRowLoader.loadSize(scheduler, holder.token, position, ""+bookUrl, ""+bookTitle, size, holder.sizeTv);
+
+
+                holder.titleTv.setText(bookTitle);
+                holder.descriptionTv.setText(description);
+                holder.dateTv.setText(date);
 
+            }
 
-                        MyApplication.loadCategory(""+categoryId, holder.categoryTv);
-                        MyApplication.loadBannerPdf(""+bookUrl, ""+bookTitle, holder.pdfView, holder.progressBar, null);
-                        MyApplication.loadPdfSize(""+bookUrl, ""+bookTitle,holder.sizeTv);
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {
 
+            }
+        };
+        ref.addListenerForSingleValueEvent(listener);
 
-                        holder.titleTv.setText(bookTitle);
-                        holder.descriptionTv.setText(description);
-                        holder.dateTv.setText(date);
+        holder.token.onCancel(gen, new Runnable() {
+            @Override
+            public void run() {
+                ref.removeEventListener(listener);
+            }
+        });
+    }
 
-                    }
+    @Override
+    public void onAttachedToRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onAttachedToRecyclerView(recyclerView);
+        scheduler.attach(recyclerView);
+        recyclerView.addOnScrollListener(flingController);
+    }
 
-                    @Override
-                    public void onCancelled(@NonNull DatabaseError error) {
+    @Override
+    public void onDetachedFromRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onDetachedFromRecyclerView(recyclerView);
+        recyclerView.removeOnScrollListener(flingController);
+        scheduler.detach();
+    }
 
-                    }
-                });
+    @Override
+    public void onViewRecycled(@NonNull HolderPdfFavorite holder) {
+        super.onViewRecycled(holder);
+        // huy cac request con dang chay cua sach cu
+        holder.token.cancel();
+        Glide.with(holder.coverIv).clear(holder.coverIv);
     }
 
     @Override
@@ -134,14 +183,16 @@ public class AdapterPdfFavorite extends RecyclerView.Adapter<AdapterPdfFavorite.
 
     class HolderPdfFavorite extends RecyclerView.ViewHolder {
 
-        PDFView pdfView;
+        ImageView coverIv;
         ProgressBar progressBar;
         TextView titleTv, descriptionTv, categoryTv, sizeTv, dateTv;
         ImageButton removeFavBtn;
+
+        final RequestToken token = new RequestToken();
         public HolderPdfFavorite(@NonNull View itemView) {
             super(itemView);
 
-            pdfView = binding.pdfView;
+            coverIv = binding.coverIv;
             progressBar = binding.progressBar;
             titleTv = binding.titleTv;
             descriptionTv = binding.descriptionTv;
@@ -7,22 +7,24 @@ import android.view.View;
 import android.view.ViewGroup;
 import android.widget.Filter;
 import android.widget.Filterable;
+import android.widget.ImageView;
 import android.widget.ProgressBar;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 
+import com.bumptech.glide.Glide;
 import com.pluto.bookapp.MyApplication;
+import com.pluto.bookapp.RequestToken;
 import com.pluto.bookapp.activities.PdfDetailActivity;
 import com.pluto.bookapp.databinding.RowPdfUserBinding;
 import com.pluto.bookapp.filter.FilterPdfUser;
 import com.pluto.bookapp.model.ModelPdf;
-import com.github.barteksc.pdfviewer.PDFView;
 
 import java.util.ArrayList;
 
-public class AdapterPdfUser extends RecyclerView.Adapter<AdapterPdfUser.HolderPdfUser> implements Filterable {
+public class AdapterPdfUser extends RecyclerView.Adapter<AdapterPdfUser.HolderPdfUser> implements Filterable, BookListPreloader.BookProvider {
 
 
     private Context context;
@@ -32,6 +34,10 @@ public class AdapterPdfUser extends RecyclerView.Adapter<AdapterPdfUser.HolderPd
     private RowPdfUserBinding binding;
     public static final String TAG = "ADAPTER_PDF_USER_TAG";
 
+    private final CoverLoadScheduler scheduler = new CoverLoadScheduler();
+    private final FlingLoadController flingController = new FlingLoadController(scheduler);
+    private final BookListPreloader preloader = new BookListPreloader(scheduler, this);
+
 
     public AdapterPdfUser(Context context, ArrayList<ModelPdf> pdfArrayList) {
         this.context = context;
@@ -51,11 +57,14 @@ public class AdapterPdfUser extends RecyclerView.Adapter<AdapterPdfUser.HolderPd
     @Override
     public void onBindViewHolder(@NonNull HolderPdfUser holder, int position) {
 
+        holder.token.reset();
+
         ModelPdf model = pdfArrayList.get(position);
         String bookId = model.getId();
         String bookTitle = model.getTitle();
         String description = model.getDescription();
         String bookUrl = model.getUrl();
+        String coverUrl = model.getCoverUrl();
         String categoryId = model.getCategoryId();
 
         long timestamp = model.getTimestamp();
@@ -67,11 +76,12 @@ public class AdapterPdfUser extends RecyclerView.Adapter<AdapterPdfUser.HolderPd
         holder.dateTv.setText(date);
 
 
-        MyApplication.loadBannerPdf(""+bookUrl, ""+bookTitle, holder.pdfView, holder.progressBar, null);
 
-        MyApplication.loadCategory(""+categoryId, holder.categoryTv);
+        MyApplication.loadCategory(""+categoryId, holder.categoryTv, holder.token);
 
-        MyApplication.loadPdfSize(""+bookUrl, ""+bookTitle, holder.sizeTv);
+        // lay tu cache truoc, phai tai qua mang thi xep vao hang doi chung cua danh sach
+        BookRowLoader.loadCover(scheduler, holder.token, position, bookId, coverUrl, ""+bookUrl, ""+bookTitle, model.getBlurHash(), model.getDominantColor(), holder.coverIv, holder.progressBar);
+        BookRowLoader.loadSize(scheduler, holder.token, position, ""+bookUrl, ""+bookTitle, model.getSize(), holder.sizeTv);
 
         holder.itemView.setOnClickListener(new View.OnClickListener() {
             @Override
@@ -85,6 +95,40 @@ public class AdapterPdfUser extends RecyclerView.Adapter<AdapterPdfUser.HolderPd
 
     }
 
+    @Override
+    public void onAttachedToRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onAttachedToRecyclerView(recyclerView);
+        scheduler.attach(recyclerView);
+        recyclerView.addOnScrollListener(flingController);
+        recyclerView.addOnScrollListener(preloader);
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onDetachedFromRecyclerView(recyclerView);
+        recyclerView.removeOnScrollListener(flingController);
+        recyclerView.removeOnScrollListener(preloader);
+        scheduler.detach();
+    }
+
+    @Override
+    public int getBookCount() {
+        return pdfArrayList.size();
+    }
+
+    @Override
+    public ModelPdf getBook(int position) {
+        return pdfArrayList.get(position);
+    }
+
+    @Override
+    public void onViewRecycled(@NonNull HolderPdfUser holder) {
+        super.onViewRecycled(holder);
+        // huy cac request con dang chay cua sach cu
+        holder.token.cancel();
+        Glide.with(holder.coverIv).clear(holder.coverIv);
+    }
+
     @Override
     public int getItemCount() {
         return pdfArrayList.size();
@@ -102,9 +146,10 @@ public class AdapterPdfUser extends RecyclerView.Adapter<AdapterPdfUser.HolderPd
 
 
         TextView titleTv, descriptionTv, categoryTv, sizeTv, dateTv, viewCountTv, downloadCountTv;
-        PDFView pdfView;
+        ImageView coverIv;
         ProgressBar progressBar;
 
+        final RequestToken token = new RequestToken();
 
         public HolderPdfUser(@NonNull View itemView) {
             super(itemView);
@@ -114,7 +159,7 @@ public class AdapterPdfUser extends RecyclerView.Adapter<AdapterPdfUser.HolderPd
             categoryTv = binding.categoryTv;
             sizeTv = binding.sizeTv;
             dateTv = binding.dateTv;
-            pdfView = binding.pdfView;
+            coverIv = binding.coverIv;
             progressBar = binding.progressBar;
         }
     }
@@ -0,0 +1,116 @@
+package com.pluto.bookapp.adapter;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.core.content.ContextCompat;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.pluto.bookapp.R;
+import com.pluto.bookapp.databinding.RowThumbBinding;
+import com.pluto.bookapp.reader.ThumbnailCache;
+import com.pluto.bookapp.reader.ThumbnailRenderer;
+
+// Thanh trang duoi man hinh doc sach: moi o la anh thu nho mot trang, bam de nhay toi trang do.
+// Anh chua co trong ThumbnailCache thi nho ThumbnailRenderer ve khi o hien ra.
+public class AdapterThumb extends RecyclerView.Adapter<AdapterThumb.HolderThumb> {
+
+    public interface OnPageClickListener {
+        void onPageClick(int page);
+    }
+
+    private Context context;
+    private int pageCount;
+    private ThumbnailRenderer thumbnailRenderer;
+    private ThumbnailCache thumbnailCache;
+    private OnPageClickListener listener;
+    private int currentPage = -1;
+
+    private RowThumbBinding binding;
+
+    public AdapterThumb(Context context, int pageCount, ThumbnailRenderer thumbnailRenderer,
+                        ThumbnailCache thumbnailCache, OnPageClickListener listener) {
+        this.context = context;
+        this.pageCount = pageCount;
+        this.thumbnailRenderer = thumbnailRenderer;
+        this.thumbnailCache = thumbnailCache;
+        this.listener = listener;
+    }
+
+    // to mau o cua trang dang doc
+    public void setCurrentPage(int page) {
+        int old = currentPage;
+        currentPage = page;
+        if (old >= 0) {
+            notifyItemChanged(old);
+        }
+        notifyItemChanged(page);
+    }
+
+    @NonNull
+    @Override
+    public HolderThumb onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        binding = RowThumbBinding.inflate(LayoutInflater.from(context), parent, false);
+
+        return new HolderThumb(binding.getRoot());
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull HolderThumb holder, int position) {
+        holder.pageTv.setText("" + (position + 1));
+        holder.itemView.setBackgroundColor(position == currentPage
+                ? ContextCompat.getColor(context, R.color.purple_500)
+                : Color.TRANSPARENT);
+
+        Bitmap bitmap = thumbnailCache.getFromMemory(position);
+        if (bitmap != null) {
+            holder.thumbIv.setImageBitmap(bitmap);
+        } else {
+            holder.thumbIv.setImageDrawable(null);
+            thumbnailRenderer.request(position);
+        }
+
+        holder.itemView.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                int page = holder.getBindingAdapterPosition();
+                if (page != RecyclerView.NO_POSITION) {
+                    listener.onPageClick(page);
+                }
+            }
+        });
+    }
+
+    // ThumbnailRenderer ve xong mot o
+    public void onThumbnail(RecyclerView recyclerView, int page, Bitmap bitmap) {
+        HolderThumb holder = (HolderThumb) recyclerView.findViewHolderForAdapterPosition(page);
+        if (holder != null) {
+            holder.thumbIv.setImageBitmap(bitmap);
+        }
+    }
+
+    @Override
+    public int getItemCount() {
+        return pageCount;
+    }
+
+    class HolderThumb extends RecyclerView.ViewHolder{
+
+        ImageView thumbIv;
+        TextView pageTv;
+
+        public HolderThumb(@NonNull View itemView) {
+            super(itemView);
+
+            thumbIv = binding.thumbIv;
+            pageTv = binding.pageTv;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.pluto.bookapp.adapter;
+
+import android.graphics.drawable.Drawable;
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.Priority;
+import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.load.engine.GlideException;
+import com.bumptech.glide.request.RequestListener;
+import com.bumptech.glide.request.target.Target;
+import com.pluto.bookapp.MyApplication;
+import com.pluto.bookapp.R;
+import com.pluto.bookapp.model.ModelPdf;
+
+import java.util.HashSet;
+
+// Lay truoc anh bia, the loai va dung luong cua N dong tiep theo theo huong cuon.
+// N tang theo toc do cuon (trong khoang minDepth..maxDepth). Anh bia dung cung request, model
+// (PdfCover bat bien, so sanh theo bookId + url) va kich thuoc voi dong sach nen cung key trong memory cache cua Glide:
+// dong duoc bind khi anh con trong memory cache thi hien ngay, bi day ra roi thi doc lai tu disk cache.
+public class BookListPreloader extends RecyclerView.OnScrollListener {
+
+    private static final String TAG = "BOOK_PRELOADER";
+
+    public static final int MIN_DEPTH = 3;
+    public static final int MAX_DEPTH = 12;
+
+    // thoi gian can de tai xong mot anh bia, dung de tinh so dong can lay truoc
+    private static final long LOOKAHEAD_MS = 1500;
+
+    public interface BookProvider {
+        int getBookCount();
+
+        ModelPdf getBook(int position);
+    }
+
+    private final CoverLoadScheduler scheduler;
+    private final BookProvider provider;
+    private final int minDepth;
+    private final int maxDepth;
+
+    // bookId + url da lay truoc, url doi (upload lai) thi lay lai
+    private final HashSet<String> preloaded = new HashSet<>();
+
+    private long lastScrollTime;
+    // px/ms, lam muot qua cac lan onScrolled
+    private float velocity;
+
+    public BookListPreloader(CoverLoadScheduler scheduler, BookProvider provider) {
+        this(scheduler, provider, MIN_DEPTH, MAX_DEPTH);
+    }
+
+    public BookListPreloader(CoverLoadScheduler scheduler, BookProvider provider, int minDepth, int maxDepth) {
+        this.scheduler = scheduler;
+        this.provider = provider;
+        this.minDepth = minDepth;
+        this.maxDepth = maxDepth;
+    }
+
+    @Override
+    public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+        if (!(recyclerView.getLayoutManager() instanceof LinearLayoutManager) || recyclerView.getChildCount() == 0) {
+            return;
+        }
+
+        long now = SystemClock.uptimeMillis();
+        if (dy != 0 && lastScrollTime > 0) {
+            long dt = Math.max(1, now - lastScrollTime);
+            velocity = velocity * 0.7f + (Math.abs(dy) / (float) dt) * 0.3f;
+        }
+        lastScrollTime = now;
+
+        // dang fling thi khong lay truoc, cho danh sach dung lai
+        if (scheduler.isPaused()) {
+            return;
+        }
+
+        View firstChild = recyclerView.getChildAt(0);
+        View coverIv = firstChild.findViewById(R.id.coverIv);
+        if (coverIv == null || coverIv.getWidth() == 0) {
+            return;
+        }
+
+        int depth = depthFor(firstChild.getHeight());
+
+        LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+        int start;
+        int step;
+        if (dy >= 0) {
+            start = layoutManager.findLastVisibleItemPosition() + 1;
+            step = 1;
+        } else {
+            start = layoutManager.findFirstVisibleItemPosition() - 1;
+            step = -1;
+        }
+
+        for (int i = 0; i < depth; i++) {
+            int position = start + i * step;
+            if (position < 0 || position >= provider.getBookCount()) {
+                break;
+            }
+            preload(recyclerView, position, coverIv.getWidth(), coverIv.getHeight());
+        }
+    }
+
+    // so dong cuon qua trong LOOKAHEAD_MS
+    private int depthFor(int rowHeight) {
+        if (rowHeight <= 0) {
+            return minDepth;
+        }
+        int rows = Math.round(velocity * LOOKAHEAD_MS / rowHeight);
+        return Math.max(minDepth, Math.min(maxDepth, rows));
+    }
+
+    private void preload(RecyclerView recyclerView, int position, int width, int height) {
+        ModelPdf book = provider.getBook(position);
+        String key = book.getId() + "|" + book.getUrl();
+        if (book.getUrl() == null || !preloaded.add(key)) {
+            return;
+        }
+        if (preloaded.size() > 1000) {
+            preloaded.clear();
+        }
+
+        // the loai doc tu Realtime Database, re nen khong can xep hang
+        MyApplication.prefetchCategory("" + book.getCategoryId());
+
+        scheduler.submit(null, position, true, new CoverLoadScheduler.Job() {
+            @Override
+            public void start(Runnable done) {
+                Log.d(TAG, "preload: position " + position);
+                MyApplication.coverRequest(Glide.with(recyclerView), book.getId(), book.getCoverUrl(), book.getUrl())
+                        .optionalCenterCrop()// giong ImageView scaleType centerCrop cua dong sach
+                        .priority(Priority.LOW)
+                        .listener(new RequestListener<Drawable>() {
+                            @Override
+                            public boolean onLoadFailed(@Nullable GlideException e, Object model, @NonNull Target<Drawable> target, boolean isFirstResource) {
+                                done.run();
+                                return false;
+                            }
+
+                            @Override
+                            public boolean onResourceReady(@NonNull Drawable resource, @NonNull Object model, Target<Drawable> target, @NonNull DataSource dataSource, boolean isFirstResource) {
+                                done.run();
+                                return false;
+                            }
+                        })
+                        .preload(width, height);
+            }
+
+            @Override
+            public void onDropped() {
+                // lan cuon sau lay lai
+                preloaded.remove(key);
+            }
+        });
+
+        // sach da luu dung luong thi khong can hoi Storage
+        if (book.getSize() > 0) {
+            return;
+        }
+        scheduler.submit(null, position, true, new CoverLoadScheduler.Job() {
+            @Override
+            public void start(Runnable done) {
+                MyApplication.prefetchPdfSize(book.getUrl(), done);
+            }
+        });
+    }
+}
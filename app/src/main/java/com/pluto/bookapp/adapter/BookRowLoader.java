@@ -0,0 +1,114 @@
+package com.pluto.bookapp.adapter;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.ColorDrawable;
+import android.graphics.drawable.Drawable;
+import android.util.LruCache;
+import android.view.View;
+import android.widget.ImageView;
+import android.widget.ProgressBar;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.load.engine.GlideException;
+import com.bumptech.glide.request.RequestListener;
+import com.bumptech.glide.request.target.Target;
+import com.pluto.bookapp.MyApplication;
+import com.pluto.bookapp.RequestToken;
+import com.pluto.bookapp.cover.BlurHash;
+
+// Load anh bia va dung luong cho mot dong sach: lay tu cache truoc (memory cache thi hien ngay,
+// disk cache thi giai ma nen nhung khong co spinner), chi xep vao CoverLoadScheduler khi phai tai qua mang.
+class BookRowLoader {
+
+    // bitmap blurhash da giai ma, moi cai chi ~2KB
+    private static final LruCache<String, Bitmap> placeholders = new LruCache<>(200);
+
+    static void loadCover(CoverLoadScheduler scheduler, RequestToken token, int position, String bookId, String coverUrl,
+                          String pdfUrl, String title, String blurHash, long dominantColor, ImageView coverIv, ProgressBar progressBar) {
+
+        int gen = token.current();
+        progressBar.setVisibility(View.INVISIBLE);
+
+        Drawable placeholder = placeholder(coverIv.getResources(), blurHash, dominantColor);
+
+        MyApplication.coverRequest(Glide.with(coverIv), bookId, coverUrl, pdfUrl)
+                .onlyRetrieveFromCache(true)
+                .placeholder(placeholder)
+                .listener(new RequestListener<Drawable>() {
+                    @Override
+                    public boolean onLoadFailed(@Nullable GlideException e, Object model, @NonNull Target<Drawable> target, boolean isFirstResource) {
+                        // Glide khong cho bat dau load moi trong callback nen post
+                        coverIv.post(new Runnable() {
+                            @Override
+                            public void run() {
+                                if(!token.isCurrent(gen)){
+                                    return;
+                                }
+                                if(placeholder == null){
+                                    progressBar.setVisibility(View.VISIBLE);
+                                }
+                                scheduler.submit(token, position, new CoverLoadScheduler.Job() {
+                                    @Override
+                                    public void start(Runnable done) {
+                                        MyApplication.loadBookCover(bookId, coverUrl, pdfUrl, title, coverIv, progressBar, placeholder, done);
+                                    }
+                                });
+                            }
+                        });
+                        return false;
+                    }
+
+                    @Override
+                    public boolean onResourceReady(@NonNull Drawable resource, @NonNull Object model, Target<Drawable> target, @NonNull DataSource dataSource, boolean isFirstResource) {
+                        return false;
+                    }
+                })
+                .into(coverIv);
+    }
+
+    // giai ma blurhash ngay tren main thread (20x28 px, duoi 1ms), sach cu khong co thi dung mau chu dao
+    static Drawable placeholder(Resources resources, String blurHash, long dominantColor) {
+        if(blurHash != null && !blurHash.isEmpty() && !blurHash.equals("null")){
+            Bitmap bitmap = placeholders.get(blurHash);
+            if(bitmap == null){
+                bitmap = BlurHash.decode(blurHash, BlurHash.DECODE_WIDTH, BlurHash.DECODE_HEIGHT);
+                if(bitmap != null){
+                    placeholders.put(blurHash, bitmap);
+                }
+            }
+            if(bitmap != null){
+                return new BitmapDrawable(resources, bitmap);
+            }
+        }
+        if(dominantColor != 0){
+            return new ColorDrawable((int) dominantColor);
+        }
+        return null;
+    }
+
+    // size: dung luong luu cung sach (sach moi hoac da backfill), 0 thi hoi Storage
+    static void loadSize(CoverLoadScheduler scheduler, RequestToken token, int position, String pdfUrl, String title, long size, TextView sizeTv) {
+        if(size > 0){
+            MyApplication.showPdfSize(sizeTv, size);
+            return;
+        }
+        if(MyApplication.loadPdfSizeFromCache(pdfUrl, sizeTv)){
+            return;
+        }
+
+        sizeTv.setText("");
+        scheduler.submit(token, position, new CoverLoadScheduler.Job() {
+            @Override
+            public void start(Runnable done) {
+                MyApplication.loadPdfSize(pdfUrl, title, sizeTv, token, done);
+            }
+        });
+    }
+}
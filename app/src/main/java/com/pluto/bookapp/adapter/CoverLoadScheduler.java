@@ -0,0 +1,274 @@
+package com.pluto.bookapp.adapter;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.pluto.bookapp.RequestToken;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+
+// Hang doi cho cac request nang cua mot danh sach sach (anh bia, dung luong file).
+// Chi cho toi da maxRunning request chay cung luc, request cua dong gan cua so dang hien
+// duoc chay truoc, request prefetch xep sau. Chi goi tren main thread.
+public class CoverLoadScheduler {
+
+    private static final String TAG = "COVER_SCHEDULER";
+
+    public static final int MAX_RUNNING = 3;
+
+    // khi resume chi giu prefetch trong khoang nay quanh cua so hien thi
+    public static final int PREFETCH_WINDOW = 12;
+
+    public interface Job {
+        // goi done khi request ket thuc (thanh cong hay loi) de nhuong cho cho request khac
+        void start(Runnable done);
+
+        // bi bo khoi hang doi truoc khi kip chay
+        default void onDropped() {
+        }
+    }
+
+    private static class Entry {
+        final int position;
+        final boolean prefetch;
+        final Job job;
+        final long enqueuedAt = SystemClock.uptimeMillis();
+        int rank;
+        boolean running;
+        boolean finished;
+
+        Entry(int position, boolean prefetch, Job job) {
+            this.position = position;
+            this.prefetch = prefetch;
+            this.job = job;
+        }
+    }
+
+    private final int maxRunning;
+    private final ArrayList<Entry> queue = new ArrayList<>();
+    private int running;
+    private boolean paused;
+
+    private RecyclerView recyclerView;
+    private int firstVisible = RecyclerView.NO_POSITION;
+    private int lastVisible = RecyclerView.NO_POSITION;
+
+    // so lieu de theo doi
+    private int maxQueueDepth;
+    private int startedCount;
+    private long totalWaitMs;
+    private long maxWaitMs;
+
+    private final RecyclerView.OnScrollListener scrollListener = new RecyclerView.OnScrollListener() {
+        @Override
+        public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+            // cua so hien thi doi thi xep lai hang doi
+            if (updateVisibleWindow()) {
+                sortQueue();
+            }
+        }
+    };
+
+    public CoverLoadScheduler() {
+        this(MAX_RUNNING);
+    }
+
+    public CoverLoadScheduler(int maxRunning) {
+        this.maxRunning = maxRunning;
+    }
+
+    // goi trong onAttachedToRecyclerView cua adapter
+    public void attach(RecyclerView recyclerView) {
+        this.recyclerView = recyclerView;
+        recyclerView.addOnScrollListener(scrollListener);
+    }
+
+    public void detach() {
+        if (recyclerView != null) {
+            recyclerView.removeOnScrollListener(scrollListener);
+            recyclerView = null;
+        }
+        // danh sach khong con hien, bo cac request chua chay
+        for (Entry entry : queue) {
+            entry.finished = true;
+            entry.job.onDropped();
+        }
+        queue.clear();
+    }
+
+    // dang fling: khong bat dau request moi, request dang chay van chay tiep
+    public void pause() {
+        if (!paused) {
+            paused = true;
+            Log.d(TAG, "pause: queue " + queue.size() + ", running " + running);
+        }
+    }
+
+    public void resume() {
+        if (!paused) {
+            return;
+        }
+        paused = false;
+
+        // dong da troi qua thi token da huy request cua no, con prefetch o xa thi bo
+        updateVisibleWindow();
+        ArrayList<Entry> dropped = new ArrayList<>();
+        for (Entry entry : queue) {
+            if (entry.prefetch && distance(entry) > PREFETCH_WINDOW) {
+                dropped.add(entry);
+            }
+        }
+        for (Entry entry : dropped) {
+            entry.finished = true;
+            queue.remove(entry);
+            entry.job.onDropped();
+        }
+        Log.d(TAG, "resume: queue " + queue.size() + ", dropped " + dropped.size());
+
+        sortQueue();
+        dispatch();
+    }
+
+    public boolean isPaused() {
+        return paused;
+    }
+
+    public void submit(RequestToken token, int position, Job job) {
+        submit(token, position, false, job);
+    }
+
+    // prefetch = true: request cho dong chua hien, luon xep sau request cua dong da bind
+    public void submit(RequestToken token, int position, boolean prefetch, Job job) {
+        Entry entry = new Entry(position, prefetch, job);
+        queue.add(entry);
+        maxQueueDepth = Math.max(maxQueueDepth, queue.size());
+
+        updateVisibleWindow();
+        sortQueue();
+
+        if (token != null) {
+            token.onCancel(token.current(), new Runnable() {
+                @Override
+                public void run() {
+                    // holder bind sach khac: bo khoi hang doi hoac tra lai cho dang chay
+                    finish(entry);
+                }
+            });
+        }
+
+        dispatch();
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public int getRunningCount() {
+        return running;
+    }
+
+    public int getMaxQueueDepth() {
+        return maxQueueDepth;
+    }
+
+    public long getAverageWaitMs() {
+        return startedCount == 0 ? 0 : totalWaitMs / startedCount;
+    }
+
+    public long getMaxWaitMs() {
+        return maxWaitMs;
+    }
+
+    private void dispatch() {
+        while (!paused && running < maxRunning && !queue.isEmpty()) {
+            Entry entry = queue.remove(0);
+            entry.running = true;
+            running++;
+
+            long waited = SystemClock.uptimeMillis() - entry.enqueuedAt;
+            startedCount++;
+            totalWaitMs += waited;
+            maxWaitMs = Math.max(maxWaitMs, waited);
+            Log.d(TAG, "dispatch: position " + entry.position + " waited " + waited + "ms, queue " + queue.size()
+                    + ", running " + running + ", avg wait " + getAverageWaitMs() + "ms");
+
+            entry.job.start(new Runnable() {
+                @Override
+                public void run() {
+                    finish(entry);
+                }
+            });
+        }
+    }
+
+    private void finish(Entry entry) {
+        if (entry.finished) {
+            return;
+        }
+        entry.finished = true;
+
+        if (entry.running) {
+            running--;
+            dispatch();
+        } else {
+            queue.remove(entry);
+        }
+    }
+
+    private boolean updateVisibleWindow() {
+        if (recyclerView == null || !(recyclerView.getLayoutManager() instanceof LinearLayoutManager)) {
+            return false;
+        }
+        LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+        int first = layoutManager.findFirstVisibleItemPosition();
+        int last = layoutManager.findLastVisibleItemPosition();
+        if (first == firstVisible && last == lastVisible) {
+            return false;
+        }
+        firstVisible = first;
+        lastVisible = last;
+        return true;
+    }
+
+    private void sortQueue() {
+        for (Entry entry : queue) {
+            entry.rank = rank(entry);
+        }
+        Collections.sort(queue, new Comparator<Entry>() {
+            @Override
+            public int compare(Entry a, Entry b) {
+                return Integer.compare(a.rank, b.rank);
+            }
+        });
+    }
+
+    // so nho chay truoc: khoang cach toi cua so hien thi, prefetch bi day xuong cuoi
+    private int rank(Entry entry) {
+        int distance = distance(entry);
+        if (entry.prefetch) {
+            distance += 10000;
+        }
+        return distance;
+    }
+
+    private int distance(Entry entry) {
+        int distance;
+        if (firstVisible == RecyclerView.NO_POSITION) {
+            // chua layout xong, giu thu tu bind
+            distance = entry.position;
+        } else if (entry.position < firstVisible) {
+            distance = firstVisible - entry.position;
+        } else if (entry.position > lastVisible) {
+            distance = entry.position - lastVisible;
+        } else {
+            distance = 0;
+        }
+        return distance;
+    }
+}
@@ -0,0 +1,57 @@
+package com.pluto.bookapp.adapter;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+// Tam dung tai anh bia khi danh sach dang fling nhanh, dong luot qua khong ton mang va CPU.
+// Toc do giam duoi nguong hoac danh sach dung lai thi chay tiep, chi dong con hien duoc load
+// (dong da troi qua bi huy qua RequestToken khi recycle).
+public class FlingLoadController extends RecyclerView.OnScrollListener {
+
+    private static final String TAG = "FLING_LOAD";
+
+    // dp/ms, khoang 3000dp/s
+    public static final float PAUSE_VELOCITY_DP_PER_MS = 3f;
+
+    private final CoverLoadScheduler scheduler;
+
+    private int scrollState = RecyclerView.SCROLL_STATE_IDLE;
+    private long lastScrollTime;
+
+    public FlingLoadController(CoverLoadScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    @Override
+    public void onScrollStateChanged(@NonNull RecyclerView recyclerView, int newState) {
+        scrollState = newState;
+        if (newState == RecyclerView.SCROLL_STATE_IDLE) {
+            lastScrollTime = 0;
+            scheduler.resume();
+        }
+    }
+
+    @Override
+    public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+        long now = SystemClock.uptimeMillis();
+        long dt = lastScrollTime == 0 ? 0 : now - lastScrollTime;
+        lastScrollTime = now;
+        if (dt <= 0 || scrollState != RecyclerView.SCROLL_STATE_SETTLING) {
+            return;
+        }
+
+        float density = recyclerView.getResources().getDisplayMetrics().density;
+        float velocity = Math.abs(dy) / density / dt;
+
+        if (velocity > PAUSE_VELOCITY_DP_PER_MS) {
+            scheduler.pause();
+        } else if (scheduler.isPaused()) {
+            // fling cham lai, load cac dong dang hien
+            Log.d(TAG, "onScrolled: slowed down to " + velocity + "dp/ms");
+            scheduler.resume();
+        }
+    }
+}
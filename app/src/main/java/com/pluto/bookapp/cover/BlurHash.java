@@ -0,0 +1,193 @@
+package com.pluto.bookapp.cover;
+
+import android.graphics.Bitmap;
+
+// BlurHash (https://blurha.sh): anh bia nen thanh ~30 ky tu, luu cung sach tren db.
+// Dong sach giai ma lai thanh bitmap nho lam placeholder trong luc cho anh bia that.
+public class BlurHash {
+
+    // 4x3 thanh phan -> 28 ky tu
+    public static final int COMPONENTS_X = 4;
+    public static final int COMPONENTS_Y = 3;
+
+    // kich thuoc bitmap placeholder, ti le gan voi trang sach
+    public static final int DECODE_WIDTH = 20;
+    public static final int DECODE_HEIGHT = 28;
+
+    // anh nho hon truoc khi tinh, ket qua gan nhu giong het ma nhanh hon nhieu
+    private static final int ENCODE_WIDTH = 32;
+
+    private static final String CHARS =
+            "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz#$%*+,-.:;=?@[]^_{|}~";
+
+    private BlurHash() {
+    }
+
+    public static String encode(Bitmap bitmap) {
+        return encode(bitmap, COMPONENTS_X, COMPONENTS_Y);
+    }
+
+    public static String encode(Bitmap bitmap, int componentsX, int componentsY) {
+        int width = Math.min(ENCODE_WIDTH, bitmap.getWidth());
+        int height = Math.max(1, Math.round((float) bitmap.getHeight() * width / bitmap.getWidth()));
+        Bitmap small = Bitmap.createScaledBitmap(bitmap, width, height, true);
+        int[] pixels = new int[width * height];
+        small.getPixels(pixels, 0, width, 0, 0, width, height);
+        if (small != bitmap) {
+            small.recycle();
+        }
+
+        float[][] factors = new float[componentsX * componentsY][];
+        for (int j = 0; j < componentsY; j++) {
+            for (int i = 0; i < componentsX; i++) {
+                float normalisation = (i == 0 && j == 0) ? 1 : 2;
+                float r = 0, g = 0, b = 0;
+                for (int y = 0; y < height; y++) {
+                    for (int x = 0; x < width; x++) {
+                        float basis = normalisation
+                                * (float) Math.cos(Math.PI * i * x / width)
+                                * (float) Math.cos(Math.PI * j * y / height);
+                        int pixel = pixels[y * width + x];
+                        r += basis * srgbToLinear((pixel >> 16) & 0xff);
+                        g += basis * srgbToLinear((pixel >> 8) & 0xff);
+                        b += basis * srgbToLinear(pixel & 0xff);
+                    }
+                }
+                float scale = 1f / (width * height);
+                factors[j * componentsX + i] = new float[]{r * scale, g * scale, b * scale};
+            }
+        }
+
+        StringBuilder hash = new StringBuilder();
+        encode83((componentsX - 1) + (componentsY - 1) * 9, 1, hash);
+
+        float maximumValue;
+        if (factors.length > 1) {
+            float actualMax = 0;
+            for (int k = 1; k < factors.length; k++) {
+                for (float value : factors[k]) {
+                    actualMax = Math.max(actualMax, Math.abs(value));
+                }
+            }
+            int quantisedMax = (int) Math.max(0, Math.min(82, Math.floor(actualMax * 166 - 0.5)));
+            maximumValue = (quantisedMax + 1) / 166f;
+            encode83(quantisedMax, 1, hash);
+        } else {
+            maximumValue = 1;
+            encode83(0, 1, hash);
+        }
+
+        float[] dc = factors[0];
+        encode83((linearToSrgb(dc[0]) << 16) + (linearToSrgb(dc[1]) << 8) + linearToSrgb(dc[2]), 4, hash);
+
+        for (int k = 1; k < factors.length; k++) {
+            float[] ac = factors[k];
+            int quantR = quantiseAc(ac[0] / maximumValue);
+            int quantG = quantiseAc(ac[1] / maximumValue);
+            int quantB = quantiseAc(ac[2] / maximumValue);
+            encode83(quantR * 19 * 19 + quantG * 19 + quantB, 2, hash);
+        }
+        return hash.toString();
+    }
+
+    // tra ve null neu chuoi khong hop le (sach cu, du lieu loi)
+    public static Bitmap decode(String hash, int width, int height) {
+        if (hash == null || hash.length() < 6) {
+            return null;
+        }
+        int sizeFlag = decode83(hash, 0, 1);
+        int componentsY = sizeFlag / 9 + 1;
+        int componentsX = sizeFlag % 9 + 1;
+        if (sizeFlag < 0 || hash.length() != 4 + 2 * componentsX * componentsY) {
+            return null;
+        }
+
+        float maximumValue = (decode83(hash, 1, 2) + 1) / 166f;
+
+        float[][] colors = new float[componentsX * componentsY][];
+        int dc = decode83(hash, 2, 6);
+        colors[0] = new float[]{
+                srgbToLinear((dc >> 16) & 0xff),
+                srgbToLinear((dc >> 8) & 0xff),
+                srgbToLinear(dc & 0xff)};
+        for (int k = 1; k < colors.length; k++) {
+            int value = decode83(hash, 4 + k * 2, 6 + k * 2);
+            if (value < 0) {
+                return null;
+            }
+            colors[k] = new float[]{
+                    signPow(((value / (19 * 19)) - 9) / 9f, 2) * maximumValue,
+                    signPow((((value / 19) % 19) - 9) / 9f, 2) * maximumValue,
+                    signPow(((value % 19) - 9) / 9f, 2) * maximumValue};
+        }
+
+        int[] pixels = new int[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                float r = 0, g = 0, b = 0;
+                for (int j = 0; j < componentsY; j++) {
+                    for (int i = 0; i < componentsX; i++) {
+                        float basis = (float) (Math.cos(Math.PI * x * i / width) * Math.cos(Math.PI * y * j / height));
+                        float[] color = colors[j * componentsX + i];
+                        r += color[0] * basis;
+                        g += color[1] * basis;
+                        b += color[2] * basis;
+                    }
+                }
+                pixels[y * width + x] = 0xff000000 | (linearToSrgb(r) << 16) | (linearToSrgb(g) << 8) | linearToSrgb(b);
+            }
+        }
+        return Bitmap.createBitmap(pixels, width, height, Bitmap.Config.ARGB_8888);
+    }
+
+    private static int quantiseAc(float value) {
+        return (int) Math.max(0, Math.min(18, Math.floor(signPow(value, 0.5f) * 9 + 9.5)));
+    }
+
+    private static float signPow(float value, float exp) {
+        return Math.copySign((float) Math.pow(Math.abs(value), exp), value);
+    }
+
+    private static float srgbToLinear(int value) {
+        float v = value / 255f;
+        if (v <= 0.04045f) {
+            return v / 12.92f;
+        }
+        return (float) Math.pow((v + 0.055f) / 1.055f, 2.4f);
+    }
+
+    private static int linearToSrgb(float value) {
+        float v = Math.max(0, Math.min(1, value));
+        if (v <= 0.0031308f) {
+            return (int) (v * 12.92f * 255 + 0.5f);
+        }
+        return (int) ((1.055f * Math.pow(v, 1 / 2.4f) - 0.055f) * 255 + 0.5f);
+    }
+
+    private static void encode83(int value, int length, StringBuilder out) {
+        for (int i = 1; i <= length; i++) {
+            int digit = (value / pow83(length - i)) % 83;
+            out.append(CHARS.charAt(digit));
+        }
+    }
+
+    private static int decode83(String hash, int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = CHARS.indexOf(hash.charAt(i));
+            if (digit < 0) {
+                return -1;
+            }
+            value = value * 83 + digit;
+        }
+        return value;
+    }
+
+    private static int pow83(int exp) {
+        int result = 1;
+        for (int i = 0; i < exp; i++) {
+            result *= 83;
+        }
+        return result;
+    }
+}
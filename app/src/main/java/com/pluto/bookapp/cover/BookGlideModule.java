@@ -0,0 +1,46 @@
+package com.pluto.bookapp.cover;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+
+import androidx.annotation.NonNull;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.GlideBuilder;
+import com.bumptech.glide.Registry;
+import com.bumptech.glide.annotation.GlideModule;
+import com.bumptech.glide.load.DecodeFormat;
+import com.bumptech.glide.load.engine.cache.MemorySizeCalculator;
+import com.bumptech.glide.module.AppGlideModule;
+import com.bumptech.glide.request.RequestOptions;
+import com.pluto.bookapp.DeviceProfile;
+import com.pluto.bookapp.MyApplication;
+
+// Cho phep Glide.with(view).load(new PdfCover(bookId, url)): sach chua co anh bia thi ve trang dau cua pdf.
+// Load PdfCover phai dung DiskCacheStrategy.RESOURCE vi khong co encoder cho PdfFile.
+@GlideModule
+public class BookGlideModule extends AppGlideModule {
+
+    // may it RAM: memory cache Glide nho hon va anh giai ma RGB_565 neu duoc (anh khong trong suot).
+    // Glide khoi tao lan dau sau Application.onCreate nen DeviceProfile da co
+    @Override
+    public void applyOptions(@NonNull Context context, @NonNull GlideBuilder builder) {
+        DeviceProfile deviceProfile = MyApplication.getDeviceProfile();
+        builder.setMemorySizeCalculator(new MemorySizeCalculator.Builder(context)
+                .setMemoryCacheScreens(deviceProfile.getGlideMemoryScreens()));
+        if (deviceProfile.isLowRam()) {
+            builder.setDefaultRequestOptions(new RequestOptions().format(DecodeFormat.PREFER_RGB_565));
+        }
+    }
+
+    @Override
+    public void registerComponents(@NonNull Context context, @NonNull Glide glide, @NonNull Registry registry) {
+        registry.append(PdfCover.class, PdfFile.class, new PdfModelLoader.Factory(context));
+        registry.append(Registry.BUCKET_BITMAP, PdfFile.class, Bitmap.class, new PdfPageDecoder(glide.getBitmapPool()));
+    }
+
+    @Override
+    public boolean isManifestParsingEnabled() {
+        return false;
+    }
+}
@@ -0,0 +1,223 @@
+package com.pluto.bookapp.cover;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.util.Log;
+import android.util.LruCache;
+
+import com.pluto.bookapp.DeviceProfile;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Cache anh bia da ve: LRU tren bo nho + LRU tren dia (cacheDir/covers).
+// Key gom bookId va "generation" cua url, upload lai file thi url doi nen cache cu tu het hieu luc.
+public class CoverCache implements DeviceProfile.Trimmable {
+
+    private static final String TAG = "COVER_CACHE";
+
+    public static final long DISK_BUDGET_BYTES = 50L * 1024 * 1024;//50MB
+
+    private final LruCache<String, Bitmap> memoryCache;
+    private final LruCache<String, Integer> pageCounts = new LruCache<>(500);
+    private final File diskDir;
+    private final long diskBudget;
+    private final ExecutorService diskExecutor = Executors.newSingleThreadExecutor();
+
+    // memoryBytes: DeviceProfile.getCoverCacheBytes (1/8 bo nho cua app, 1/16 tren may it RAM)
+    public CoverCache(Context context, int memoryBytes) {
+        memoryCache = new LruCache<String, Bitmap>(memoryBytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap value) {
+                return value.getByteCount();
+            }
+        };
+
+        diskDir = new File(context.getCacheDir(), "covers");
+        diskDir.mkdirs();
+        diskBudget = DISK_BUDGET_BYTES;
+
+        Log.d(TAG, "CoverCache: memory " + memoryBytes + " bytes, disk " + diskBudget + " bytes");
+    }
+
+    public static String key(String bookId, String url) {
+        return safe(bookId) + "_" + generation(url);
+    }
+
+    // url tai xuong co token rieng cho moi lan upload
+    public static String generation(String url) {
+        return Integer.toHexString(url == null ? 0 : url.hashCode());
+    }
+
+    public Bitmap getFromMemory(String key) {
+        return memoryCache.get(key);
+    }
+
+    public int getPageCount(String key) {
+        Integer count = pageCounts.get(key);
+        return count == null ? -1 : count;
+    }
+
+    // doc tu dia, goi tren background thread
+    public Bitmap getFromDisk(String key) {
+        File file = coverFile(key);
+        if (!file.exists()) {
+            return null;
+        }
+
+        Bitmap bitmap = BitmapFactory.decodeFile(file.getPath());
+        if (bitmap == null) {
+            file.delete();
+            return null;
+        }
+        // danh dau vua dung cho LRU tren dia
+        file.setLastModified(System.currentTimeMillis());
+        memoryCache.put(key, bitmap);
+
+        File pagesFile = pagesFile(key);
+        if (pagesFile.exists()) {
+            try {
+                BufferedReader reader = new BufferedReader(new FileReader(pagesFile));
+                String text;
+                try {
+                    text = reader.readLine();
+                } finally {
+                    reader.close();
+                }
+                pageCounts.put(key, Integer.parseInt(text == null ? "" : text.trim()));
+            } catch (IOException | NumberFormatException e) {
+                Log.d(TAG, "getFromDisk: page count " + e.getMessage());
+            }
+        }
+        return bitmap;
+    }
+
+    public void put(String key, Bitmap bitmap, int pageCount) {
+        memoryCache.put(key, bitmap);
+        if (pageCount > 0) {
+            pageCounts.put(key, pageCount);
+        }
+
+        diskExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                writeToDisk(key, bitmap, pageCount);
+                trimDisk();
+            }
+        });
+    }
+
+    // anh bia con tren dia: vao nen thi bo het, thieu bo nho khi dang chay thi bo mot nua
+    @Override
+    public void trimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN
+                || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+            memoryCache.evictAll();
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            memoryCache.trimToSize(memoryCache.maxSize() / 2);
+        }
+        Log.d(TAG, "trimMemory: level " + level + ", " + memoryCache.size() + " bytes left");
+    }
+
+    // xoa moi ban cua mot cuon sach (moi generation)
+    public void invalidate(String bookId) {
+        String prefix = safe(bookId) + "_";
+        for (String key : memoryCache.snapshot().keySet()) {
+            if (key.startsWith(prefix)) {
+                memoryCache.remove(key);
+                pageCounts.remove(key);
+            }
+        }
+
+        diskExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                File[] files = diskDir.listFiles();
+                if (files == null) {
+                    return;
+                }
+                for (File file : files) {
+                    if (file.getName().startsWith(prefix)) {
+                        file.delete();
+                    }
+                }
+            }
+        });
+    }
+
+    private void writeToDisk(String key, Bitmap bitmap, int pageCount) {
+        File file = coverFile(key);
+        File tmp = new File(diskDir, file.getName() + ".tmp");
+        try {
+            FileOutputStream out = new FileOutputStream(tmp);
+            out.write(CoverRenderer.encodeWebp(bitmap));
+            out.close();
+            if (!tmp.renameTo(file)) {
+                tmp.delete();
+                return;
+            }
+
+            if (pageCount > 0) {
+                FileWriter writer = new FileWriter(pagesFile(key));
+                writer.write("" + pageCount);
+                writer.close();
+            }
+        } catch (IOException e) {
+            tmp.delete();
+            Log.d(TAG, "writeToDisk: " + e.getMessage());
+        }
+    }
+
+    // xoa file dung lau nhat toi khi tong dung luong nho hon budget
+    private void trimDisk() {
+        File[] files = diskDir.listFiles();
+        if (files == null) {
+            return;
+        }
+
+        long total = 0;
+        for (File file : files) {
+            total += file.length();
+        }
+        if (total <= diskBudget) {
+            return;
+        }
+
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File a, File b) {
+                return Long.compare(a.lastModified(), b.lastModified());
+            }
+        });
+        for (File file : files) {
+            if (total <= diskBudget) {
+                break;
+            }
+            total -= file.length();
+            file.delete();
+        }
+        Log.d(TAG, "trimDisk: " + total + " bytes left");
+    }
+
+    private File coverFile(String key) {
+        return new File(diskDir, key + ".webp");
+    }
+
+    private File pagesFile(String key) {
+        return new File(diskDir, key + ".pages");
+    }
+
+    private static String safe(String value) {
+        return ("" + value).replaceAll("[^A-Za-z0-9_-]", "_");
+    }
+}
@@ -0,0 +1,106 @@
+package com.pluto.bookapp.cover;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.graphics.pdf.PdfRenderer;
+import android.os.Build;
+import android.os.ParcelFileDescriptor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+public class CoverRenderer {
+
+    // chieu rong anh bia, du cho row 100dp tren man hinh xxhdpi
+    public static final int COVER_WIDTH = 300;
+    public static final int COVER_QUALITY = 75;
+
+    private CoverRenderer() {
+    }
+
+    public static class Result {
+        public final Bitmap bitmap;
+        public final int pageCount;
+
+        Result(Bitmap bitmap, int pageCount) {
+            this.bitmap = bitmap;
+            this.pageCount = pageCount;
+        }
+    }
+
+    // ve trang dau tien cua pdf thanh bitmap co chieu rong targetWidth
+    public static Bitmap renderFirstPage(ParcelFileDescriptor pfd, int targetWidth) throws IOException {
+        return render(pfd, targetWidth).bitmap;
+    }
+
+    // PdfRenderer se dong pfd khi close
+    public static Result render(ParcelFileDescriptor pfd, int targetWidth) throws IOException {
+        PdfRenderer renderer = new PdfRenderer(pfd);
+        try {
+            int pageCount = renderer.getPageCount();
+            if (pageCount == 0) {
+                throw new IOException("Pdf has no pages");
+            }
+            PdfRenderer.Page page = renderer.openPage(0);
+            try {
+                int width = targetWidth;
+                int height = Math.max(1, Math.round((float) page.getHeight() * targetWidth / page.getWidth()));
+
+                Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+                // trang pdf trong suot nen to nen trang truoc
+                bitmap.eraseColor(Color.WHITE);
+                page.render(bitmap, null, null, PdfRenderer.Page.RENDER_MODE_FOR_DISPLAY);
+                return new Result(bitmap, pageCount);
+            } finally {
+                page.close();
+            }
+        } finally {
+            renderer.close();
+        }
+    }
+
+    // mau xuat hien nhieu nhat (gom theo 4 bit moi kenh) tren ban thu nho cua anh
+    public static int dominantColor(Bitmap bitmap) {
+        int width = Math.min(32, bitmap.getWidth());
+        int height = Math.max(1, Math.round((float) bitmap.getHeight() * width / bitmap.getWidth()));
+        Bitmap small = Bitmap.createScaledBitmap(bitmap, width, height, true);
+        int[] pixels = new int[width * height];
+        small.getPixels(pixels, 0, width, 0, 0, width, height);
+        if (small != bitmap) {
+            small.recycle();
+        }
+
+        int[] counts = new int[4096];
+        long[][] sums = new long[4096][3];
+        int best = 0;
+        for (int pixel : pixels) {
+            int r = (pixel >> 16) & 0xff;
+            int g = (pixel >> 8) & 0xff;
+            int b = pixel & 0xff;
+            int bucket = ((r >> 4) << 8) | ((g >> 4) << 4) | (b >> 4);
+            counts[bucket]++;
+            sums[bucket][0] += r;
+            sums[bucket][1] += g;
+            sums[bucket][2] += b;
+            if (counts[bucket] > counts[best]) {
+                best = bucket;
+            }
+        }
+
+        int n = Math.max(1, counts[best]);
+        return Color.rgb((int) (sums[best][0] / n), (int) (sums[best][1] / n), (int) (sums[best][2] / n));
+    }
+
+    public static byte[] encodeWebp(Bitmap bitmap) {
+        Bitmap.CompressFormat format;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+            format = Bitmap.CompressFormat.WEBP_LOSSY;
+        } else {
+            format = Bitmap.CompressFormat.WEBP;
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        bitmap.compress(format, COVER_QUALITY, out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,38 @@
+package com.pluto.bookapp.cover;
+
+import java.util.Objects;
+
+// Model Glide cho anh bia ve tu trang dau pdf. Glide dung model lam key cua memory cache va
+// gop request giong nhau nen phai bat bien va so sanh theo bookId + url.
+public final class PdfCover {
+
+    public final String bookId;
+    public final String url;
+
+    public PdfCover(String bookId, String url) {
+        this.bookId = bookId;
+        this.url = url;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof PdfCover)) {
+            return false;
+        }
+        PdfCover other = (PdfCover) o;
+        return Objects.equals(bookId, other.bookId) && Objects.equals(url, other.url);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(bookId, url);
+    }
+
+    @Override
+    public String toString() {
+        return "PdfCover{" + bookId + ", " + url + "}";
+    }
+}
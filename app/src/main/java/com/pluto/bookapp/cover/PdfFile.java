@@ -0,0 +1,14 @@
+package com.pluto.bookapp.cover;
+
+import java.io.File;
+
+// Du lieu trung gian cho Glide: file pdf (co the chi co cac doan byte cua trang dau)
+// nam trong cacheDir, bi xoa sau khi ve xong.
+public class PdfFile {
+
+    public final File file;
+
+    public PdfFile(File file) {
+        this.file = file;
+    }
+}
@@ -0,0 +1,169 @@
+package com.pluto.bookapp.cover;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.bumptech.glide.Priority;
+import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.data.DataFetcher;
+import com.bumptech.glide.load.model.ModelLoader;
+import com.bumptech.glide.load.model.ModelLoaderFactory;
+import com.bumptech.glide.load.model.MultiModelLoaderFactory;
+import com.bumptech.glide.signature.ObjectKey;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.storage.FileDownloadTask;
+import com.google.firebase.storage.FirebaseStorage;
+import com.google.firebase.storage.StorageReference;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+
+// Glide: PdfCover -> PdfFile. Tai cac doan byte cua trang dau (PdfRangeFetcher),
+// loi thi tai ca file. Key theo bookId + url nen upload lai thi cache cu tu het hieu luc.
+public class PdfModelLoader implements ModelLoader<PdfCover, PdfFile> {
+
+    private static final String TAG = "PDF_MODEL_LOADER";
+
+    private final File pdfDir;
+
+    PdfModelLoader(Context context) {
+        pdfDir = new File(context.getCacheDir(), "glide_pdf");
+    }
+
+    @Override
+    public LoadData<PdfFile> buildLoadData(@NonNull PdfCover model, int width, int height, @NonNull Options options) {
+        String key = CoverCache.key(model.bookId, model.url);
+        return new LoadData<>(new ObjectKey(key), new Fetcher(model.url, pdfDir, key));
+    }
+
+    @Override
+    public boolean handles(@NonNull PdfCover model) {
+        String url = model.url;
+        return url != null && !url.isEmpty() && !url.equals("null");
+    }
+
+    static class Fetcher implements DataFetcher<PdfFile> {
+
+        private final String pdfUrl;
+        private final File pdfDir;
+        private final String key;
+        // file tam rieng cua lan tai nay, hai request cung sach khong ghi/xoa file cua nhau
+        private volatile File pdfFile;
+
+        private volatile boolean cancelled;
+        private volatile PdfRangeFetcher rangeFetcher;
+        private volatile FileDownloadTask downloadTask;
+
+        Fetcher(String pdfUrl, File pdfDir, String key) {
+            this.pdfUrl = pdfUrl;
+            this.pdfDir = pdfDir;
+            this.key = key;
+        }
+
+        // Glide goi tren source executor cua no nen co the chay dong bo
+        @Override
+        public void loadData(@NonNull Priority priority, @NonNull DataCallback<? super PdfFile> callback) {
+            pdfDir.mkdirs();
+            File pdfFile;
+            try {
+                pdfFile = File.createTempFile(key + "_", ".pdf", pdfDir);
+            } catch (IOException e) {
+                callback.onLoadFailed(e);
+                return;
+            }
+            this.pdfFile = pdfFile;
+            StorageReference ref = FirebaseStorage.getInstance().getReferenceFromUrl(pdfUrl);
+
+            try {
+                String downloadUrl = pdfUrl.startsWith("http") ? pdfUrl : "" + Tasks.await(ref.getDownloadUrl());
+                rangeFetcher = new PdfRangeFetcher(downloadUrl, pdfFile);
+                if (cancelled) {
+                    throw new InterruptedIOException("cancelled");
+                }
+                rangeFetcher.fetchFirstPage();
+                Log.d(TAG, "loadData: fetched " + rangeFetcher.getBytesFetched() + " of " + rangeFetcher.getFileLength());
+                callback.onDataReady(new PdfFile(pdfFile));
+                return;
+            } catch (InterruptedIOException e) {
+                callback.onLoadFailed(e);
+                return;
+            } catch (Exception e) {
+                if (cancelled) {
+                    callback.onLoadFailed(e);
+                    return;
+                }
+                Log.d(TAG, "loadData: partial fetch failed, download whole file: " + e.getMessage());
+            }
+
+            // tai ca file
+            try {
+                downloadTask = ref.getFile(pdfFile);
+                if (cancelled) {
+                    downloadTask.cancel();
+                }
+                Tasks.await(downloadTask);
+                callback.onDataReady(new PdfFile(pdfFile));
+            } catch (Exception e) {
+                pdfFile.delete();
+                callback.onLoadFailed(e);
+            }
+        }
+
+        // Glide da decode xong (hoac bo qua), file tam khong can nua
+        @Override
+        public void cleanup() {
+            File file = pdfFile;
+            if (file != null) {
+                file.delete();
+            }
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            PdfRangeFetcher fetcher = rangeFetcher;
+            if (fetcher != null) {
+                fetcher.cancel();
+            }
+            FileDownloadTask task = downloadTask;
+            if (task != null) {
+                task.cancel();
+            }
+        }
+
+        @NonNull
+        @Override
+        public Class<PdfFile> getDataClass() {
+            return PdfFile.class;
+        }
+
+        @NonNull
+        @Override
+        public DataSource getDataSource() {
+            return DataSource.REMOTE;
+        }
+    }
+
+    public static class Factory implements ModelLoaderFactory<PdfCover, PdfFile> {
+
+        private final Context context;
+
+        public Factory(Context context) {
+            this.context = context.getApplicationContext();
+        }
+
+        @NonNull
+        @Override
+        public ModelLoader<PdfCover, PdfFile> build(@NonNull MultiModelLoaderFactory multiFactory) {
+            return new PdfModelLoader(context);
+        }
+
+        @Override
+        public void teardown() {
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.pluto.bookapp.cover;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.graphics.pdf.PdfRenderer;
+import android.os.ParcelFileDescriptor;
+
+import androidx.annotation.NonNull;
+
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.ResourceDecoder;
+import com.bumptech.glide.load.engine.Resource;
+import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
+import com.bumptech.glide.load.resource.bitmap.BitmapResource;
+import com.bumptech.glide.request.target.Target;
+
+import java.io.IOException;
+
+// Glide: PdfFile -> Bitmap. Ve trang dau bang PdfRenderer dung bang kich thuoc view dich,
+// bitmap lay tu BitmapPool cua Glide.
+public class PdfPageDecoder implements ResourceDecoder<PdfFile, Bitmap> {
+
+    private final BitmapPool bitmapPool;
+
+    public PdfPageDecoder(BitmapPool bitmapPool) {
+        this.bitmapPool = bitmapPool;
+    }
+
+    @Override
+    public boolean handles(@NonNull PdfFile source, @NonNull Options options) {
+        return source.file.exists();
+    }
+
+    @Override
+    public Resource<Bitmap> decode(@NonNull PdfFile source, int width, int height, @NonNull Options options) throws IOException {
+        ParcelFileDescriptor pfd = ParcelFileDescriptor.open(source.file, ParcelFileDescriptor.MODE_READ_ONLY);
+        PdfRenderer renderer = new PdfRenderer(pfd);
+        try {
+            if (renderer.getPageCount() == 0) {
+                return null;
+            }
+            PdfRenderer.Page page = renderer.openPage(0);
+            try {
+                int[] size = targetSize(page.getWidth(), page.getHeight(), width, height);
+
+                Bitmap bitmap = bitmapPool.get(size[0], size[1], Bitmap.Config.ARGB_8888);
+                // trang pdf nen trong suot
+                bitmap.eraseColor(Color.WHITE);
+                page.render(bitmap, null, null, PdfRenderer.Page.RENDER_MODE_FOR_DISPLAY);
+                return BitmapResource.obtain(bitmap, bitmapPool);
+            } finally {
+                page.close();
+            }
+        } finally {
+            renderer.close();
+            pfd.close();
+        }
+    }
+
+    // giu ti le trang, phu kin view (centerCrop sau do cat phan thua)
+    static int[] targetSize(int pageWidth, int pageHeight, int width, int height) {
+        if (width == Target.SIZE_ORIGINAL || width <= 0) {
+            width = CoverRenderer.COVER_WIDTH;
+        }
+        float scale = (float) width / pageWidth;
+        if (height != Target.SIZE_ORIGINAL && height > 0) {
+            scale = Math.max(scale, (float) height / pageHeight);
+        }
+        int outWidth = Math.max(1, Math.round(pageWidth * scale));
+        int outHeight = Math.max(1, Math.round(pageHeight * scale));
+        return new int[]{outWidth, outHeight};
+    }
+}
@@ -0,0 +1,722 @@
+package com.pluto.bookapp.cover;
+
+import android.util.Log;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+// Tai mot phan file pdf (theo Range) du de ve trang dau tien.
+// Ket qua la file "thua" (sparse) co dung kich thuoc file goc, cac doan chua tai la byte 0.
+public class PdfRangeFetcher {
+
+    private static final String TAG = "PDF_RANGE_FETCH";
+
+    private static final int FIRST_CHUNK = 16 * 1024;
+    // hai doan cach nhau it hon nguong nay thi gop vao mot request
+    private static final int MERGE_GAP = 4 * 1024;
+    // tai qua nua file thi khong con loi, de caller tai ca file
+    private static final double MAX_FETCH_RATIO = 0.5;
+    private static final int MAX_WALK_OBJECTS = 400;
+
+    private static final Pattern REF = Pattern.compile("(\\d+)\\s+(\\d+)\\s+R");
+    private static final Pattern TYPE_PAGES = Pattern.compile("/Type\\s*/Pages\\b");
+    private static final Pattern TYPE_PAGE = Pattern.compile("/Type\\s*/Page\\b");
+
+    private static final AtomicLong totalBytesFetched = new AtomicLong();
+    private static final AtomicLong totalBytesSaved = new AtomicLong();
+
+    private final String url;
+    private final File outFile;
+
+    private RandomAccessFile out;
+    private volatile boolean cancelled;
+    private long fileLength = -1;
+    private long bytesFetched = 0;
+
+    // cac doan [start, end) da tai, sap xep va khong chong nhau
+    private final ArrayList<long[]> fetchedRanges = new ArrayList<>();
+
+    // xref: so object -> offset, hoac -> {object stream, vi tri} voi object nen
+    private final HashMap<Integer, Long> offsets = new HashMap<>();
+    private final HashMap<Integer, int[]> compressed = new HashMap<>();
+    private final ArrayList<Long> sectionOffsets = new ArrayList<>();
+    private long[] sortedOffsets;
+    private final HashMap<Integer, ObjectStream> objectStreams = new HashMap<>();
+
+    private static class ObjectStream {
+        byte[] data;
+        int first;
+    }
+
+    public PdfRangeFetcher(String url, File outFile) {
+        this.url = url;
+        this.outFile = outFile;
+    }
+
+    // goi tu thread khac, lan doc tiep theo se dung lai
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public static long getTotalBytesFetched() {
+        return totalBytesFetched.get();
+    }
+
+    public static long getTotalBytesSaved() {
+        return totalBytesSaved.get();
+    }
+
+    public long getBytesFetched() {
+        return bytesFetched;
+    }
+
+    public long getFileLength() {
+        return fileLength;
+    }
+
+    public long getBytesSaved() {
+        return fileLength < 0 ? 0 : fileLength - bytesFetched;
+    }
+
+    public File fetchFirstPage() throws IOException {
+        // ten tam rieng de hai lan tai cung mot sach khong ghi de len nhau
+        File partFile = File.createTempFile(outFile.getName(), ".part", outFile.getParentFile());
+        out = new RandomAccessFile(partFile, "rw");
+        try {
+            out.setLength(0);
+
+            byte[] head = fetch(0, FIRST_CHUNK - 1);
+            out.setLength(fileLength);
+
+            if (fileLength > head.length) {
+                String headText = latin1(head, 0, Math.min(head.length, 1024));
+                if (headText.contains("/Linearized")) {
+                    fetchLinearized(headText);
+                } else {
+                    fetchByXref();
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            out.close();
+            partFile.delete();
+            throw e;
+        }
+        out.close();
+
+        if (!partFile.renameTo(outFile)) {
+            partFile.delete();
+            throw new IOException("Cannot move " + partFile + " to " + outFile);
+        }
+
+        totalBytesFetched.addAndGet(bytesFetched);
+        totalBytesSaved.addAndGet(getBytesSaved());
+        Log.d(TAG, "fetchFirstPage: " + bytesFetched + "/" + fileLength + " bytes, saved " + getBytesSaved()
+                + " (total saved " + totalBytesSaved.get() + ")");
+        return outFile;
+    }
+
+    // pdf linearized: trang dau nam trong [0, E), bang xref chinh o cuoi file tu /T
+    private void fetchLinearized(String headText) throws IOException {
+        long e = dictLong(headText, "/E");
+        long t = dictLong(headText, "/T");
+        if (e <= 0 || e > fileLength) {
+            fetchByXref();
+            return;
+        }
+
+        ensure(0, e);
+        if (t > 0 && t < fileLength) {
+            // /T tro vao entry dau tien, lui lai mot chut de lay ca dong "xref"
+            ensure(Math.max(e, t - 256), fileLength);
+        } else {
+            readTail();
+        }
+    }
+
+    private void fetchByXref() throws IOException {
+        String tail = latin1(readTail());
+        int idx = tail.lastIndexOf("startxref");
+        if (idx < 0) {
+            throw new IOException("startxref not found");
+        }
+        long xrefPos = firstNumber(tail.substring(idx + 9));
+
+        String trailer = null;
+        HashSet<Long> seen = new HashSet<>();
+        while (xrefPos >= 0 && xrefPos < fileLength && seen.add(xrefPos)) {
+            String dict = readXrefSection(xrefPos);
+            if (trailer == null) {
+                trailer = dict;
+            }
+            long xrefStm = dictLong(dict, "/XRefStm");
+            if (xrefStm > 0 && seen.add(xrefStm)) {
+                readXrefSection(xrefStm);
+            }
+            xrefPos = dictLong(dict, "/Prev");
+        }
+        if (trailer == null) {
+            throw new IOException("trailer not found");
+        }
+        buildSortedOffsets();
+
+        int root = dictRef(trailer, "/Root");
+        if (root < 0) {
+            throw new IOException("/Root not found");
+        }
+        int encrypt = dictRef(trailer, "/Encrypt");
+        walkFirstPage(root, encrypt);
+    }
+
+    private static final int ROLE_CATALOG = 0;
+    private static final int ROLE_PAGE_TREE = 1;
+    private static final int ROLE_OTHER = 2;
+
+    // di tu catalog xuong trang dau, lay moi object ma trang dau can (resources, fonts, contents)
+    private void walkFirstPage(int root, int encrypt) throws IOException {
+        HashMap<Integer, Integer> level = new HashMap<>();
+        HashSet<Integer> visited = new HashSet<>();
+        level.put(root, ROLE_CATALOG);
+        if (encrypt >= 0) {
+            level.put(encrypt, ROLE_OTHER);
+        }
+
+        while (!level.isEmpty()) {
+            if (visited.size() > MAX_WALK_OBJECTS) {
+                throw new IOException("first page references too many objects");
+            }
+            checkCancelled();
+
+            ensureObjects(level.keySet());
+
+            HashMap<Integer, Integer> next = new HashMap<>();
+            for (Integer num : level.keySet()) {
+                visited.add(num);
+                String dict = objectDict(num);
+                if (dict == null) {
+                    continue;
+                }
+
+                int role = level.get(num);
+                ArrayList<Integer> children = new ArrayList<>();
+                if (role == ROLE_CATALOG) {
+                    int pages = dictRef(dict, "/Pages");
+                    if (pages >= 0) {
+                        next.put(pages, ROLE_PAGE_TREE);
+                    }
+                } else if (role == ROLE_PAGE_TREE && TYPE_PAGES.matcher(dict).find()) {
+                    // resources co the ke thua tu node cha nen lay het tru Kids/Parent
+                    Matcher kids = Pattern.compile("/Kids\\s*\\[\\s*(\\d+)\\s+\\d+\\s+R").matcher(dict);
+                    if (kids.find()) {
+                        next.put(Integer.parseInt(kids.group(1)), ROLE_PAGE_TREE);
+                    }
+                    collectRefs(dict, children, "/Kids", "/Parent");
+                } else if (role == ROLE_PAGE_TREE) {
+                    collectRefs(dict, children, "/Parent", "/Annots", "/B", "/Thumb");
+                } else if (!TYPE_PAGE.matcher(dict).find() && !TYPE_PAGES.matcher(dict).find()) {
+                    collectRefs(dict, children, "/Parent", "/P");
+                }
+
+                for (Integer child : children) {
+                    if (!visited.contains(child) && !next.containsKey(child)) {
+                        next.put(child, ROLE_OTHER);
+                    }
+                }
+            }
+            next.keySet().removeAll(visited);
+            level = next;
+        }
+    }
+
+    private void ensureObjects(Iterable<Integer> nums) throws IOException {
+        ArrayList<long[]> ranges = new ArrayList<>();
+        for (Integer num : nums) {
+            long[] range = objectRange(num);
+            if (range != null) {
+                ranges.add(range);
+            }
+        }
+        if (ranges.isEmpty()) {
+            return;
+        }
+
+        ranges.sort((a, b) -> Long.compare(a[0], b[0]));
+        long start = ranges.get(0)[0];
+        long end = ranges.get(0)[1];
+        for (int i = 1; i < ranges.size(); i++) {
+            long[] r = ranges.get(i);
+            if (r[0] - end <= MERGE_GAP) {
+                end = Math.max(end, r[1]);
+            } else {
+                ensure(start, end);
+                start = r[0];
+                end = r[1];
+            }
+        }
+        ensure(start, end);
+    }
+
+    // doan byte cua object (hoac object stream chua no), tu offset toi offset ke tiep
+    private long[] objectRange(int num) {
+        Long offset = offsets.get(num);
+        if (offset == null) {
+            int[] location = compressed.get(num);
+            if (location == null) {
+                return null;
+            }
+            offset = offsets.get(location[0]);
+            if (offset == null) {
+                return null;
+            }
+        }
+        int i = Arrays.binarySearch(sortedOffsets, offset);
+        long end = fileLength;
+        for (int j = i + 1; j < sortedOffsets.length; j++) {
+            if (sortedOffsets[j] > offset) {
+                end = sortedOffsets[j];
+                break;
+            }
+        }
+        return new long[]{offset, end};
+    }
+
+    private String objectDict(int num) throws IOException {
+        String text = objectText(num);
+        if (text == null) {
+            return null;
+        }
+        int stream = text.indexOf("stream");
+        return stream >= 0 ? text.substring(0, stream) : text;
+    }
+
+    private String objectText(int num) throws IOException {
+        int[] location = compressed.get(num);
+        if (location != null) {
+            return compressedObjectText(location[0], location[1]);
+        }
+        long[] range = objectRange(num);
+        if (range == null) {
+            return null;
+        }
+        return latin1(read(range[0], (int) (range[1] - range[0])));
+    }
+
+    private String compressedObjectText(int streamNum, int index) throws IOException {
+        ObjectStream stream = objectStreams.get(streamNum);
+        if (stream == null) {
+            long[] range = objectRange(streamNum);
+            if (range == null) {
+                return null;
+            }
+            byte[] raw = read(range[0], (int) (range[1] - range[0]));
+            String text = latin1(raw);
+            int streamKw = text.indexOf("stream");
+            if (streamKw < 0) {
+                return null;
+            }
+            String dict = text.substring(0, streamKw);
+            stream = new ObjectStream();
+            stream.data = streamData(raw, text, streamKw, dict);
+            stream.first = (int) dictLong(dict, "/First");
+            objectStreams.put(streamNum, stream);
+        }
+
+        byte[] data = stream.data;
+        int first = stream.first;
+        if (first <= 0 || first > data.length) {
+            return null;
+        }
+        String all = latin1(data);
+        String[] header = all.substring(0, first).trim().split("\\s+");
+        int pairs = header.length / 2;
+        if (index >= pairs) {
+            return null;
+        }
+        int start = (int) (first + Long.parseLong(header[index * 2 + 1]));
+        int end = index + 1 < pairs ? (int) (first + Long.parseLong(header[index * 2 + 3])) : data.length;
+        if (start < 0 || start > data.length || end > data.length || end < start) {
+            return null;
+        }
+        return all.substring(start, end);
+    }
+
+    // du lieu cua stream object (bo FlateDecode va PNG predictor), dung chung voi reader/LinearizedHints
+    public static byte[] streamData(byte[] raw, String text, int streamKw, String dict) throws IOException {
+        int dataStart = streamKw + 6;
+        if (dataStart < raw.length && raw[dataStart] == '\r') {
+            dataStart++;
+        }
+        if (dataStart < raw.length && raw[dataStart] == '\n') {
+            dataStart++;
+        }
+        int dataEnd = text.indexOf("endstream", dataStart);
+        if (dataEnd < 0) {
+            dataEnd = raw.length;
+        }
+
+        byte[] data = Arrays.copyOfRange(raw, dataStart, dataEnd);
+        if (dict.contains("/FlateDecode")) {
+            data = inflate(data);
+        }
+        int predictor = (int) dictLong(dict, "/Predictor");
+        if (predictor >= 10) {
+            int columns = (int) dictLong(dict, "/Columns");
+            data = unpredictPng(data, columns > 0 ? columns : 1);
+        }
+        return data;
+    }
+
+    private String readXrefSection(long pos) throws IOException {
+        byte[] probe = read(pos, (int) Math.min(64, fileLength - pos));
+        String start = latin1(probe).trim();
+        if (start.startsWith("xref")) {
+            return readClassicXref(pos);
+        }
+        return readXrefStream(pos);
+    }
+
+    private String readClassicXref(long pos) throws IOException {
+        sectionOffsets.add(pos);
+        String text = latin1(readGrowing(pos, "startxref"));
+        int tableStart = text.indexOf("xref") + 4;
+        int trailerIdx = text.indexOf("trailer", tableStart);
+        if (trailerIdx < 0) {
+            throw new IOException("trailer not found after xref at " + pos);
+        }
+
+        String[] tokens = text.substring(tableStart, trailerIdx).trim().split("\\s+");
+        int k = 0;
+        while (k + 1 < tokens.length) {
+            int first = Integer.parseInt(tokens[k]);
+            int count = Integer.parseInt(tokens[k + 1]);
+            k += 2;
+            for (int j = 0; j < count && k + 2 < tokens.length; j++, k += 3) {
+                // section moi hon duoc doc truoc nen khong ghi de
+                if (tokens[k + 2].equals("n") && !offsets.containsKey(first + j) && !compressed.containsKey(first + j)) {
+                    offsets.put(first + j, Long.parseLong(tokens[k]));
+                }
+            }
+        }
+
+        int end = text.indexOf("startxref", trailerIdx);
+        return text.substring(trailerIdx, end);
+    }
+
+    private String readXrefStream(long pos) throws IOException {
+        sectionOffsets.add(pos);
+        byte[] raw = readGrowing(pos, "endstream");
+        String text = latin1(raw);
+        int streamKw = text.indexOf("stream");
+        if (streamKw < 0 || !text.contains("/XRef")) {
+            throw new IOException("no xref at " + pos);
+        }
+        String dict = text.substring(0, streamKw);
+        byte[] data = streamData(raw, text, streamKw, dict);
+
+        int[] w = dictIntArray(dict, "/W");
+        if (w == null || w.length < 3) {
+            throw new IOException("bad /W in xref stream");
+        }
+        int[] index = dictIntArray(dict, "/Index");
+        if (index == null) {
+            index = new int[]{0, (int) dictLong(dict, "/Size")};
+        }
+
+        int rowLength = w[0] + w[1] + w[2];
+        int p = 0;
+        for (int s = 0; s + 1 < index.length; s += 2) {
+            for (int j = 0; j < index[s + 1] && p + rowLength <= data.length; j++) {
+                long type = w[0] == 0 ? 1 : field(data, p, w[0]);
+                long f2 = field(data, p + w[0], w[1]);
+                long f3 = field(data, p + w[0] + w[1], w[2]);
+                p += rowLength;
+
+                int num = index[s] + j;
+                if (offsets.containsKey(num) || compressed.containsKey(num)) {
+                    continue;
+                }
+                if (type == 1) {
+                    offsets.put(num, f2);
+                } else if (type == 2) {
+                    compressed.put(num, new int[]{(int) f2, (int) f3});
+                }
+            }
+        }
+        return dict;
+    }
+
+    private void buildSortedOffsets() {
+        ArrayList<Long> all = new ArrayList<>(offsets.values());
+        all.addAll(sectionOffsets);
+        all.add(fileLength);
+        sortedOffsets = new long[all.size()];
+        for (int i = 0; i < all.size(); i++) {
+            sortedOffsets[i] = all.get(i);
+        }
+        Arrays.sort(sortedOffsets);
+    }
+
+    // tai dan tu cuoi file, moi lan gap doi, toi khi thay "startxref"
+    private byte[] readTail() throws IOException {
+        int length = FIRST_CHUNK;
+        while (true) {
+            long start = Math.max(0, fileLength - length);
+            byte[] tail = read(start, (int) (fileLength - start));
+            if (latin1(tail).contains("startxref") || start == 0) {
+                return tail;
+            }
+            length *= 2;
+        }
+    }
+
+    // tai dan tu pos, moi lan gap doi, toi khi thay marker
+    private byte[] readGrowing(long pos, String marker) throws IOException {
+        int length = FIRST_CHUNK;
+        while (true) {
+            int len = (int) Math.min(length, fileLength - pos);
+            byte[] bytes = read(pos, len);
+            if (latin1(bytes).contains(marker) || pos + len >= fileLength) {
+                return bytes;
+            }
+            length *= 2;
+        }
+    }
+
+    private byte[] read(long start, int length) throws IOException {
+        ensure(start, start + length);
+        byte[] bytes = new byte[length];
+        out.seek(start);
+        out.readFully(bytes);
+        return bytes;
+    }
+
+    // tai cac doan con thieu trong [start, end)
+    private void ensure(long start, long end) throws IOException {
+        end = Math.min(end, fileLength);
+        long cursor = start;
+        for (long[] range : new ArrayList<>(fetchedRanges)) {
+            if (range[1] <= cursor) {
+                continue;
+            }
+            if (range[0] >= end) {
+                break;
+            }
+            if (range[0] > cursor) {
+                fetch(cursor, range[0] - 1);
+            }
+            cursor = Math.max(cursor, range[1]);
+        }
+        if (cursor < end) {
+            fetch(cursor, end - 1);
+        }
+    }
+
+    private byte[] fetch(long start, long endInclusive) throws IOException {
+        checkCancelled();
+        if (fileLength > 0) {
+            endInclusive = Math.min(endInclusive, fileLength - 1);
+        }
+
+        HttpURLConnection conn = (HttpURLConnection) new URL(url).openConnection();
+        conn.setConnectTimeout(15000);
+        conn.setReadTimeout(15000);
+        conn.setRequestProperty("Range", "bytes=" + start + "-" + endInclusive);
+
+        byte[] bytes;
+        try {
+            int code = conn.getResponseCode();
+            if (code != HttpURLConnection.HTTP_PARTIAL) {
+                throw new IOException("Range request not supported, http " + code);
+            }
+            if (fileLength < 0) {
+                String contentRange = conn.getHeaderField("Content-Range");
+                int slash = contentRange == null ? -1 : contentRange.lastIndexOf('/');
+                if (slash < 0 || contentRange.endsWith("*")) {
+                    throw new IOException("Unknown file length: " + contentRange);
+                }
+                fileLength = Long.parseLong(contentRange.substring(slash + 1).trim());
+            }
+
+            InputStream in = conn.getInputStream();
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream((int) (endInclusive - start + 1));
+            byte[] chunk = new byte[8192];
+            int n;
+            while ((n = in.read(chunk)) != -1) {
+                checkCancelled();
+                buffer.write(chunk, 0, n);
+            }
+            in.close();
+            bytes = buffer.toByteArray();
+        } finally {
+            conn.disconnect();
+        }
+
+        out.seek(start);
+        out.write(bytes);
+        addRange(start, start + bytes.length);
+        bytesFetched += bytes.length;
+
+        if (bytesFetched > FIRST_CHUNK && bytesFetched > fileLength * MAX_FETCH_RATIO) {
+            throw new IOException("Partial fetch exceeded " + (int) (MAX_FETCH_RATIO * 100) + "% of file");
+        }
+        return bytes;
+    }
+
+    private void checkCancelled() throws InterruptedIOException {
+        if (cancelled || Thread.currentThread().isInterrupted()) {
+            throw new InterruptedIOException("cancelled");
+        }
+    }
+
+    private void addRange(long start, long end) {
+        fetchedRanges.add(new long[]{start, end});
+        fetchedRanges.sort((a, b) -> Long.compare(a[0], b[0]));
+        ArrayList<long[]> merged = new ArrayList<>();
+        for (long[] r : fetchedRanges) {
+            if (!merged.isEmpty() && r[0] <= merged.get(merged.size() - 1)[1]) {
+                long[] last = merged.get(merged.size() - 1);
+                last[1] = Math.max(last[1], r[1]);
+            } else {
+                merged.add(new long[]{r[0], r[1]});
+            }
+        }
+        fetchedRanges.clear();
+        fetchedRanges.addAll(merged);
+    }
+
+    private static void collectRefs(String dict, ArrayList<Integer> refs, String... excludedKeys) {
+        String text = dict;
+        for (String key : excludedKeys) {
+            String k = Pattern.quote(key);
+            text = text.replaceAll(k + "\\s*\\[[^\\]]*\\]", " ")
+                    .replaceAll(k + "\\s*\\d+\\s+\\d+\\s+R", " ");
+        }
+        Matcher m = REF.matcher(text);
+        while (m.find()) {
+            refs.add(Integer.parseInt(m.group(1)));
+        }
+    }
+
+    private static byte[] inflate(byte[] data) throws IOException {
+        Inflater inflater = new Inflater();
+        inflater.setInput(data);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length * 4);
+        byte[] buffer = new byte[8192];
+        try {
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buffer);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                out.write(buffer, 0, n);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException(e);
+        } finally {
+            inflater.end();
+        }
+        return out.toByteArray();
+    }
+
+    // bo PNG predictor (thuong la Up) cua xref stream
+    private static byte[] unpredictPng(byte[] data, int columns) {
+        int rowLength = columns + 1;
+        int rows = data.length / rowLength;
+        byte[] result = new byte[rows * columns];
+        byte[] prev = new byte[columns];
+        for (int r = 0; r < rows; r++) {
+            int filter = data[r * rowLength] & 0xff;
+            byte[] row = new byte[columns];
+            for (int c = 0; c < columns; c++) {
+                int x = data[r * rowLength + 1 + c] & 0xff;
+                int left = c > 0 ? row[c - 1] & 0xff : 0;
+                int up = prev[c] & 0xff;
+                int upLeft = c > 0 ? prev[c - 1] & 0xff : 0;
+                switch (filter) {
+                    case 1: x += left; break;
+                    case 2: x += up; break;
+                    case 3: x += (left + up) / 2; break;
+                    case 4: x += paeth(left, up, upLeft); break;
+                    default: break;
+                }
+                row[c] = (byte) x;
+            }
+            System.arraycopy(row, 0, result, r * columns, columns);
+            prev = row;
+        }
+        return result;
+    }
+
+    private static int paeth(int a, int b, int c) {
+        int p = a + b - c;
+        int pa = Math.abs(p - a);
+        int pb = Math.abs(p - b);
+        int pc = Math.abs(p - c);
+        if (pa <= pb && pa <= pc) {
+            return a;
+        }
+        return pb <= pc ? b : c;
+    }
+
+    private static long field(byte[] data, int pos, int width) {
+        long value = 0;
+        for (int i = 0; i < width; i++) {
+            value = (value << 8) | (data[pos + i] & 0xff);
+        }
+        return value;
+    }
+
+    public static long dictLong(String dict, String key) {
+        Matcher m = Pattern.compile(Pattern.quote(key) + "\\s+(\\d+)(?!\\s+\\d+\\s+R)").matcher(dict);
+        return m.find() ? Long.parseLong(m.group(1)) : -1;
+    }
+
+    private static int dictRef(String dict, String key) {
+        Matcher m = Pattern.compile(Pattern.quote(key) + "\\s+(\\d+)\\s+\\d+\\s+R").matcher(dict);
+        return m.find() ? Integer.parseInt(m.group(1)) : -1;
+    }
+
+    public static int[] dictIntArray(String dict, String key) {
+        Matcher m = Pattern.compile(Pattern.quote(key) + "\\s*\\[([^\\]]*)\\]").matcher(dict);
+        if (!m.find()) {
+            return null;
+        }
+        String[] parts = m.group(1).trim().split("\\s+");
+        int[] values = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            values[i] = Integer.parseInt(parts[i]);
+        }
+        return values;
+    }
+
+    private static long firstNumber(String text) throws IOException {
+        Matcher m = Pattern.compile("(\\d+)").matcher(text);
+        if (!m.find()) {
+            throw new IOException("number expected");
+        }
+        return Long.parseLong(m.group(1));
+    }
+
+    public static String latin1(byte[] bytes) {
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+
+    private static String latin1(byte[] bytes, int offset, int length) {
+        return new String(bytes, offset, length, StandardCharsets.ISO_8859_1);
+    }
+}
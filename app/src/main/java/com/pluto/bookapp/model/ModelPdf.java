@@ -2,8 +2,8 @@ package com.pluto.bookapp.model;
 
 public class ModelPdf {
 
-    String uid, id, title, description, categoryId, url;
-    long timestamp, viewCount, downloadCount;
+    String uid, id, title, description, categoryId, url, coverUrl, blurHash;
+    long timestamp, viewCount, downloadCount, pageCount, dominantColor, size;
 
     boolean favorite;
     public ModelPdf() {
@@ -78,6 +78,30 @@ public class ModelPdf {
         this.url = url;
     }
 
+    public String getCoverUrl() {
+        return coverUrl;
+    }
+
+    public void setCoverUrl(String coverUrl) {
+        this.coverUrl = coverUrl;
+    }
+
+    public String getBlurHash() {
+        return blurHash;
+    }
+
+    public void setBlurHash(String blurHash) {
+        this.blurHash = blurHash;
+    }
+
+    public long getDominantColor() {
+        return dominantColor;
+    }
+
+    public void setDominantColor(long dominantColor) {
+        this.dominantColor = dominantColor;
+    }
+
     public long getTimestamp() {
         return timestamp;
     }
@@ -86,6 +110,22 @@ public class ModelPdf {
         this.timestamp = timestamp;
     }
 
+    public long getPageCount() {
+        return pageCount;
+    }
+
+    public void setPageCount(long pageCount) {
+        this.pageCount = pageCount;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public void setSize(long size) {
+        this.size = size;
+    }
+
     public long getViewCount() {
         return viewCount;
     }
@@ -0,0 +1,175 @@
+package com.pluto.bookapp.reader;
+
+import com.pluto.bookapp.cover.PdfRangeFetcher;
+
+import java.io.IOException;
+
+// Vi tri tung trang cua pdf linearized (PDF 1.7, phu luc F), doc tu linearization dict o dau file
+// va bang "page offset hint" trong hint stream. Thu tu trong file: [0, E) la header, catalog va
+// trang dau; cac trang sau nam lien nhau theo thu tu; tu het trang cuoi toi cuoi file la
+// shared objects, cay trang va bang xref chinh.
+public class LinearizedHints {
+
+    // doc du de thay linearization dict (object dau tien cua file)
+    public static final int DICT_PROBE = 1024;
+
+    public final long fileLength;
+    public final int pageCount;
+    public final long firstPageEnd;
+    // chi hop le sau parseHints
+    private long[] pageStarts;
+    private long[] pageEnds;
+    private long tailStart;
+
+    // /H [offset length (offset length)]: hint stream chinh (va hint stream phu)
+    private final long[] hintStreams;
+
+    private LinearizedHints(long fileLength, int pageCount, long firstPageEnd, long[] hintStreams) {
+        this.fileLength = fileLength;
+        this.pageCount = pageCount;
+        this.firstPageEnd = firstPageEnd;
+        this.hintStreams = hintStreams;
+    }
+
+    // null neu khong phai linearized, trang dau khong phai trang 0, hoac /L khac dung luong that
+    // (file bi sua them sau khi linearize, vi tri trong hint khong con dung)
+    public static LinearizedHints readDict(byte[] head, long fileLength) {
+        String text = PdfRangeFetcher.latin1(head);
+        int lin = text.indexOf("/Linearized");
+        int start = lin < 0 ? -1 : text.lastIndexOf("<<", lin);
+        int end = lin < 0 ? -1 : text.indexOf(">>", lin);
+        if (start < 0 || end < 0) {
+            return null;
+        }
+        String dict = text.substring(start, end);
+
+        long length = PdfRangeFetcher.dictLong(dict, "/L");
+        long firstPageEnd = PdfRangeFetcher.dictLong(dict, "/E");
+        long pageCount = PdfRangeFetcher.dictLong(dict, "/N");
+        long firstPage = PdfRangeFetcher.dictLong(dict, "/P");
+        int[] hints = PdfRangeFetcher.dictIntArray(dict, "/H");
+        if (length != fileLength || firstPageEnd <= 0 || firstPageEnd > fileLength || pageCount <= 0
+                || firstPage > 0 || hints == null || hints.length < 2) {
+            return null;
+        }
+        long[] hintStreams = new long[hints.length];
+        for (int i = 0; i < hints.length; i++) {
+            hintStreams[i] = hints[i];
+        }
+        return new LinearizedHints(fileLength, (int) pageCount, firstPageEnd, hintStreams);
+    }
+
+    public long getHintStart() {
+        return hintStreams[0];
+    }
+
+    public long getHintEnd() {
+        return hintStreams[0] + hintStreams[1];
+    }
+
+    // hintObject: ca object hint stream ("n 0 obj << ... >> stream ... endstream")
+    public boolean parseHints(byte[] hintObject) throws IOException {
+        String text = PdfRangeFetcher.latin1(hintObject);
+        int streamKw = text.indexOf("stream");
+        if (streamKw < 0) {
+            return false;
+        }
+        byte[] data = PdfRangeFetcher.streamData(hintObject, text, streamKw, text.substring(0, streamKw));
+        BitReader in = new BitReader(data);
+
+        // header cua page offset hint table (bang F.3)
+        in.read(32);                        // so object it nhat cua mot trang
+        long firstPageOffset = in.read(32); // vi tri page object cua trang dau
+        int objectBits = (int) in.read(16);
+        long leastLength = in.read(32);
+        int lengthBits = (int) in.read(16);
+        // content stream offset/length, shared object refs: khong can
+        in.read(32);
+        in.read(16);
+        in.read(32);
+        in.read(16);
+        in.read(16);
+        in.read(16);
+        in.read(16);
+        in.read(16);
+
+        // moi muc cua bang F.4 lap lai cho tat ca cac trang roi moi sang muc sau, bat dau o byte moi
+        for (int i = 0; i < pageCount; i++) {
+            in.read(objectBits);
+        }
+        in.alignToByte();
+        long[] lengths = new long[pageCount];
+        for (int i = 0; i < pageCount; i++) {
+            lengths[i] = leastLength + in.read(lengthBits);
+        }
+
+        // vi tri trong hint tinh nhu khong co hint stream, cong lai do dai hint stream nam truoc no
+        long[] starts = new long[pageCount];
+        long[] ends = new long[pageCount];
+        long offset = firstPageOffset;
+        for (int i = 0; i < pageCount; i++) {
+            starts[i] = adjust(offset);
+            offset += lengths[i];
+            ends[i] = adjust(offset);
+            if (lengths[i] <= 0 || ends[i] > fileLength) {
+                return false;
+            }
+        }
+        pageStarts = starts;
+        pageEnds = ends;
+        tailStart = Math.max(firstPageEnd, ends[pageCount - 1]);
+        return true;
+    }
+
+    private long adjust(long offset) {
+        long adjusted = offset;
+        for (int i = 0; i + 1 < hintStreams.length; i += 2) {
+            if (offset >= hintStreams[i]) {
+                adjusted += hintStreams[i + 1];
+            }
+        }
+        return adjusted;
+    }
+
+    // shared objects, cay trang, xref chinh: trang nao cung can
+    public long getTailStart() {
+        return tailStart;
+    }
+
+    // doan byte rieng cua trang; trang 0 nam trong [0, E)
+    public long pageStart(int page) {
+        return page == 0 ? 0 : pageStarts[page];
+    }
+
+    public long pageEnd(int page) {
+        return page == 0 ? firstPageEnd : pageEnds[page];
+    }
+
+    // doc so nguyen khong dau nhieu bit, bit cao truoc
+    private static class BitReader {
+        private final byte[] data;
+        private long bitPos;
+
+        BitReader(byte[] data) {
+            this.data = data;
+        }
+
+        long read(int bits) throws IOException {
+            if (bits > 32 || bitPos + bits > (long) data.length * 8) {
+                throw new IOException("hint table too short");
+            }
+            long value = 0;
+            for (int i = 0; i < bits; i++) {
+                int b = data[(int) (bitPos >> 3)] & 0xff;
+                int bit = (b >> (7 - (int) (bitPos & 7))) & 1;
+                value = (value << 1) | bit;
+                bitPos++;
+            }
+            return value;
+        }
+
+        void alignToByte() {
+            bitPos = (bitPos + 7) & ~7L;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.pluto.bookapp.reader;
+
+import android.content.ComponentCallbacks2;
+import android.graphics.Bitmap;
+import android.util.Log;
+import android.util.LruCache;
+
+import com.pluto.bookapp.DeviceProfile;
+
+// Bitmap cac trang da ve cua cuon sach dang doc, gioi han theo byte.
+// DeviceProfile chon dung luong: 1/4 bo nho cua app tren may thuong (trang dang xem va vai trang
+// render-ahead), 1/8 tren may it RAM.
+public class PageCache implements DeviceProfile.Trimmable {
+
+    private static final String TAG = "PAGE_CACHE";
+
+    private final LruCache<Integer, Bitmap> cache;
+
+    public PageCache(int maxBytes) {
+        cache = new LruCache<Integer, Bitmap>(maxBytes) {
+            @Override
+            protected int sizeOf(Integer key, Bitmap value) {
+                return value.getByteCount();
+            }
+        };
+        Log.d(TAG, "PageCache: " + maxBytes + " bytes");
+    }
+
+    public Bitmap get(int page) {
+        return cache.get(page);
+    }
+
+    public void put(int page, Bitmap bitmap) {
+        cache.put(page, bitmap);
+    }
+
+    public boolean contains(int page) {
+        return cache.get(page) != null;
+    }
+
+    // so trang kich thuoc pageBytes vua trong cache
+    public int pagesThatFit(int pageBytes) {
+        return pageBytes <= 0 ? 0 : cache.maxSize() / pageBytes;
+    }
+
+    public void evictAll() {
+        cache.evictAll();
+    }
+
+    // UI an hoac he thong sap het bo nho thi bo het, ve lai khi quay lai chi ton vai chuc ms/trang.
+    // Bitmap dang gan vao ImageView khong bi recycle, chi khong con giu trong cache
+    @Override
+    public void trimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN
+                || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+            cache.evictAll();
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            cache.trimToSize(cache.maxSize() / 2);
+        }
+        Log.d(TAG, "trimMemory: level " + level + ", " + cache.size() + " bytes left");
+    }
+}
@@ -0,0 +1,357 @@
+package com.pluto.bookapp.reader;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.graphics.pdf.PdfRenderer;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.pluto.bookapp.DeviceProfile;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeoutException;
+
+// Ve trang sach bang cac PdfRenderer trong RendererPool, moi renderer mot thread ve.
+// Trang gan trang dang doc nhat duoc ve truoc: trang dang hien, roi N trang sau va N trang truoc
+// (render-ahead) khi nguoi doc dung cuon. Trang da xa trang dang doc thi bo, khong ve nua.
+public class PageRenderer {
+
+    private static final String TAG = "PAGE_RENDERER";
+
+    // trang dang hien co the lech trang "hien tai" 1-2 trang (trang ngan, dang cuon)
+    private static final int VISIBLE_SLACK = 2;
+
+    // cho renderer ranh (thumbnail dung chung pool), qua thi xep trang lai hang doi
+    private static final long ACQUIRE_TIMEOUT_MS = 2000;
+
+    public interface Listener {
+        void onPageRendered(int page, Bitmap bitmap);
+
+        void onPageError(int page, Exception e);
+    }
+
+    // sach dang tai (ProgressiveBook): trang chua tai xong thi chua ve
+    public interface PageSource {
+        boolean isPageAvailable(int page);
+
+        // trang dang hien chua co, tai no truoc
+        void onPageWanted(int page);
+    }
+
+    private final RendererPool pool;
+    private final PageCache cache;
+    private final int pageCount;
+
+    // ty le cao/rong cua tung trang, 0 = chua mo trang do
+    private final float[] ratios;
+    private final float defaultRatio;
+
+    private final ExecutorService executor;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // trang dang cho ve -> true neu dang hien tren man hinh (khong bi bo khi cuon xa)
+    private final HashMap<Integer, Boolean> pending = new HashMap<>();
+    // trang cho tai xong moi ve, khoa bang pending
+    private final HashMap<Integer, Boolean> waiting = new HashMap<>();
+    private volatile PageSource pageSource;
+    private volatile int currentPage;
+    private volatile int prefetchDepth;
+    private volatile int width;
+    private volatile Bitmap.Config bitmapConfig = Bitmap.Config.ARGB_8888;
+    private volatile boolean closed;
+
+    private Listener listener;
+
+    // mo file va do trang dau de cac trang co chieu cao tam truoc khi ve
+    // poolSize: DeviceProfile.getRendererPoolSize
+    public PageRenderer(File file, PageCache cache, int poolSize) throws IOException {
+        this.cache = cache;
+        pool = new RendererPool(file, poolSize);
+        executor = Executors.newFixedThreadPool(pool.getSize());
+
+        PdfRenderer renderer;
+        try {
+            renderer = pool.acquire(ACQUIRE_TIMEOUT_MS);
+        } catch (InterruptedException | TimeoutException e) {
+            pool.close();
+            throw new IOException(e);
+        } catch (IOException | RuntimeException e) {
+            pool.close();
+            throw e;
+        }
+        try {
+            pageCount = renderer.getPageCount();
+            ratios = new float[pageCount];
+            if (pageCount > 0) {
+                PdfRenderer.Page page = renderer.openPage(0);
+                ratios[0] = (float) page.getHeight() / page.getWidth();
+                page.close();
+            }
+        } finally {
+            pool.release(renderer);
+        }
+        defaultRatio = pageCount > 0 ? ratios[0] : 1.41f;
+    }
+
+    // dung chung cho thumbnail cua cung cuon sach
+    public RendererPool getPool() {
+        return pool;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    // null khi file da tai xong
+    public void setPageSource(PageSource pageSource) {
+        this.pageSource = pageSource;
+        if (pageSource == null) {
+            retryWaiting();
+        }
+    }
+
+    // co them trang tai xong: ve lai cac trang dang cho
+    public void retryWaiting() {
+        HashMap<Integer, Boolean> retry;
+        synchronized (pending) {
+            retry = new HashMap<>(waiting);
+            waiting.clear();
+        }
+        for (Integer page : retry.keySet()) {
+            enqueue(page, retry.get(page));
+        }
+    }
+
+    public int getPageCount() {
+        return pageCount;
+    }
+
+    // chieu rong bitmap (px), doi chieu rong thi cac trang cu trong cache khong dung duoc nua
+    public void setWidth(int width) {
+        if (this.width != width) {
+            this.width = width;
+            cache.evictAll();
+        }
+    }
+
+    // RGB_565 tren may it RAM: PdfRenderer ve vao ARGB_8888 roi doi, cache giu ban nho
+    public void setBitmapConfig(Bitmap.Config bitmapConfig) {
+        if (this.bitmapConfig != bitmapConfig) {
+            this.bitmapConfig = bitmapConfig;
+            cache.evictAll();
+        }
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public void setPrefetchDepth(int prefetchDepth) {
+        this.prefetchDepth = Math.max(0, prefetchDepth);
+    }
+
+    public int getPrefetchDepth() {
+        return prefetchDepth;
+    }
+
+    // trang chua ve thi lay ty le cua trang dau
+    public float getRatio(int page) {
+        float ratio = ratios[page];
+        return ratio > 0 ? ratio : defaultRatio;
+    }
+
+    // byte cua mot trang voi chieu rong hien tai, de tinh so trang vua cache
+    public int getPageBytes() {
+        return width * Math.round(width * defaultRatio) * DeviceProfile.bytesPerPixel(bitmapConfig);
+    }
+
+    // trang dang hien can ve
+    public void request(int page) {
+        enqueue(page, true);
+    }
+
+    private void enqueue(int page, boolean visible) {
+        if (page < 0 || page >= pageCount || closed) {
+            return;
+        }
+        synchronized (pending) {
+            Boolean queued = pending.get(page);
+            if (queued != null) {
+                if (visible && !queued) {
+                    pending.put(page, true);
+                }
+                return;
+            }
+            pending.put(page, visible);
+        }
+        executor.execute(renderClosest);
+    }
+
+    // cuon xong: ve truoc N trang sau roi N trang truoc trang dang doc
+    public void prefetchAround(int page) {
+        currentPage = page;
+        for (int i = 1; i <= prefetchDepth; i++) {
+            if (!cache.contains(page + i)) {
+                enqueue(page + i, false);
+            }
+        }
+        for (int i = 1; i <= prefetchDepth; i++) {
+            if (!cache.contains(page - i)) {
+                enqueue(page - i, false);
+            }
+        }
+    }
+
+    public void setCurrentPage(int page) {
+        currentPage = page;
+    }
+
+    // moi lan chay ve trang dang cho gan trang dang doc nhat (khong nhat thiet la trang da goi)
+    private final Runnable renderClosest = new Runnable() {
+        @Override
+        public void run() {
+            int[] next = takeClosest();
+            if (next == null || closed || width <= 0) {
+                return;
+            }
+            int page = next[0];
+            if (next[1] == 0 && Math.abs(page - currentPage) > prefetchDepth + VISIBLE_SLACK) {
+                // nguoi doc da cuon di xa
+                return;
+            }
+            Bitmap cached = cache.get(page);
+            if (cached != null) {
+                postRendered(page, cached);
+                return;
+            }
+            PageSource source = pageSource;
+            if (source != null && !source.isPageAvailable(page)) {
+                synchronized (pending) {
+                    waiting.put(page, next[1] == 1);
+                }
+                if (next[1] == 1) {
+                    source.onPageWanted(page);
+                }
+                return;
+            }
+
+            PdfRenderer renderer;
+            try {
+                renderer = pool.acquire(ACQUIRE_TIMEOUT_MS);
+            } catch (TimeoutException e) {
+                Log.d(TAG, "render: page " + page + " " + e.getMessage());
+                enqueue(page, next[1] == 1);
+                return;
+            } catch (IOException | InterruptedException | RuntimeException e) {
+                if (!closed) {
+                    Log.d(TAG, "render: page " + page + " " + e.getMessage());
+                    postError(page, e);
+                }
+                return;
+            }
+
+            long start = SystemClock.uptimeMillis();
+            try {
+                Bitmap bitmap = render(renderer, page, width);
+                long ms = SystemClock.uptimeMillis() - start;
+                RenderStats.recordRender(ms);
+                Log.d(TAG, "render: page " + page + " in " + ms + "ms (current " + currentPage + ")");
+                cache.put(page, bitmap);
+                postRendered(page, bitmap);
+            } catch (RuntimeException e) {
+                Log.d(TAG, "render: page " + page + " " + e.getMessage());
+                postError(page, e);
+            } finally {
+                pool.release(renderer);
+            }
+        }
+    };
+
+    // {trang, 1 neu dang hien}, null neu khong con trang nao
+    private int[] takeClosest() {
+        synchronized (pending) {
+            int best = -1;
+            int bestDistance = Integer.MAX_VALUE;
+            for (int page : pending.keySet()) {
+                // cung khoang cach thi uu tien trang phia sau (doc tien)
+                int distance = Math.abs(page - currentPage) * 2 + (page < currentPage ? 1 : 0);
+                if (distance < bestDistance) {
+                    best = page;
+                    bestDistance = distance;
+                }
+            }
+            if (best < 0) {
+                return null;
+            }
+            boolean visible = pending.remove(best);
+            return new int[]{best, visible ? 1 : 0};
+        }
+    }
+
+    private Bitmap render(PdfRenderer renderer, int index, int width) {
+        PdfRenderer.Page page = renderer.openPage(index);
+        try {
+            float ratio = (float) page.getHeight() / page.getWidth();
+            ratios[index] = ratio;
+            int height = Math.max(1, Math.round(width * ratio));
+
+            Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            // trang pdf nen trong suot
+            bitmap.eraseColor(Color.WHITE);
+            page.render(bitmap, null, null, PdfRenderer.Page.RENDER_MODE_FOR_DISPLAY);
+            return convert(bitmap, bitmapConfig);
+        } finally {
+            page.close();
+        }
+    }
+
+    // PdfRenderer chi ve vao ARGB_8888
+    static Bitmap convert(Bitmap bitmap, Bitmap.Config config) {
+        if (config == Bitmap.Config.ARGB_8888) {
+            return bitmap;
+        }
+        Bitmap converted = bitmap.copy(config, false);
+        bitmap.recycle();
+        return converted;
+    }
+
+    private void postRendered(int page, Bitmap bitmap) {
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (!closed && listener != null) {
+                    listener.onPageRendered(page, bitmap);
+                }
+            }
+        });
+    }
+
+    private void postError(int page, Exception e) {
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (!closed && listener != null) {
+                    listener.onPageError(page, e);
+                }
+            }
+        });
+    }
+
+    // renderer dang ve duoc pool dong khi ve xong
+    public void close() {
+        closed = true;
+        synchronized (pending) {
+            pending.clear();
+            waiting.clear();
+        }
+        executor.shutdown();
+        pool.close();
+        Log.d(TAG, "close: " + RenderStats.summary());
+    }
+}
@@ -0,0 +1,297 @@
+package com.pluto.bookapp.reader;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.google.firebase.storage.StorageMetadata;
+import com.pluto.bookapp.cover.CoverCache;
+import com.pluto.bookapp.store.BookStore;
+import com.pluto.bookapp.store.ChunkedDownloader;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Mo sach khi dang tai (pdf linearized): tai dau file, hint stream, trang dau va phan cuoi file
+// (shared objects, cay trang, xref) truoc, roi mo PdfRenderer. Cac trang con lai tai theo thu tu,
+// nhay toi trang nao thi doan byte cua trang do duoc tai truoc (promote).
+// Pdf khong linearized thi dung lai va bao onNotLinearized: tai ca file mot request (BookStore.open)
+// nhanh hon nhieu so voi hang tram request Range 256KB.
+public class ProgressiveBook implements PageRenderer.PageSource {
+
+    private static final String TAG = "PROGRESSIVE_BOOK";
+
+    // doan nho de trang dau toi nhanh, moi doan la mot request Range
+    private static final int CHUNK_SIZE = 256 * 1024;
+
+    public interface Listener {
+        // du de mo PdfRenderer va ve trang dau
+        void onOpenable(File file);
+
+        // them trang tai xong
+        void onPagesAvailable();
+
+        void onProgress(long bytes, long total);
+
+        // file da vao kho (doi ten), PdfRenderer dang mo van doc tiep duoc
+        void onComplete(File file);
+
+        // khong mo som duoc (khong linearized, hint hong): file .stream da xoa, tai ca file nhu thuong
+        void onNotLinearized();
+
+        void onError(Exception e);
+    }
+
+    private final BookStore bookStore;
+    private final String bookId;
+    private final StorageMetadata metadata;
+    private final String generation;
+    private final File streamFile;
+    private final long total;
+    private final ChunkedDownloader downloader;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private Listener listener;
+    private volatile boolean cancelled;
+    // dung tai theo doan de chuyen sang tai ca file
+    private volatile boolean fallback;
+
+    // chi doi tren thread tai
+    private LinearizedHints dict;
+    private boolean notLinearized;
+    private boolean hintsParsed;
+    // khac null khi da mo duoc, doc tu thread ve
+    private volatile LinearizedHints hints;
+
+    private long startMs;
+
+    public ProgressiveBook(BookStore bookStore, String bookId, String url, StorageMetadata metadata) {
+        this.bookStore = bookStore;
+        this.bookId = bookId;
+        this.metadata = metadata;
+        this.generation = CoverCache.generation(url);
+        this.streamFile = bookStore.getStreamingFile(bookId, generation);
+        this.total = metadata.getSizeBytes();
+        this.downloader = new ChunkedDownloader(url, streamFile, total, CHUNK_SIZE, new ChunkedDownloader.Callback() {
+            @Override
+            public boolean isStopped() {
+                return cancelled || fallback;
+            }
+
+            @Override
+            public void onProgress(long bytes, long total) {
+                postProgress(bytes, total);
+            }
+        });
+        downloader.setChunkListener(new ChunkedDownloader.ChunkListener() {
+            @Override
+            public void onChunkDone(long start, long end) {
+                try {
+                    advance();
+                } catch (IOException | RuntimeException e) {
+                    Log.d(TAG, "advance: " + e.getMessage());
+                    fallBack();
+                }
+            }
+        });
+    }
+
+    public void start(Listener listener) {
+        this.listener = listener;
+        startMs = SystemClock.uptimeMillis();
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    if (!downloader.download()) {
+                        if (fallback && !cancelled) {
+                            downloader.discard();
+                            postNotLinearized();
+                        }
+                        return;
+                    }
+                } catch (IOException e) {
+                    // mat mang: file .stream giu lai, lan mo sau tai tiep
+                    Log.d(TAG, "download: " + e.getMessage());
+                    postError(e);
+                    return;
+                }
+                try {
+                    File file = bookStore.commitDownload(streamFile, bookId, generation, metadata, false);
+                    Log.d(TAG, "download: " + bookId + " complete after " + (SystemClock.uptimeMillis() - startMs) + "ms");
+                    postComplete(file);
+                } catch (IOException e) {
+                    Log.d(TAG, "commit: " + e.getMessage());
+                    postError(e);
+                } finally {
+                    // da vao kho, hoac sai md5 thi tai lai tu dau
+                    downloader.discard();
+                }
+            }
+        });
+    }
+
+    // moi doan xong: doc dict -> uu tien hint va trang dau -> doc hint -> uu tien phan cuoi -> mo
+    private void advance() throws IOException {
+        if (notLinearized) {
+            return;
+        }
+        if (dict == null) {
+            int probe = (int) Math.min(LinearizedHints.DICT_PROBE, total);
+            if (!downloader.isDownloaded(0, probe)) {
+                return;
+            }
+            dict = LinearizedHints.readDict(read(0, probe), total);
+            if (dict == null) {
+                Log.d(TAG, "advance: " + bookId + " not linearized, download whole file");
+                fallBack();
+                return;
+            }
+            // prioritize dua len dau hang doi: hint truoc, roi trang dau
+            downloader.prioritize(0, dict.firstPageEnd);
+            downloader.prioritize(dict.getHintStart(), dict.getHintEnd());
+        }
+        if (!hintsParsed) {
+            if (!downloader.isDownloaded(dict.getHintStart(), dict.getHintEnd())) {
+                return;
+            }
+            if (!dict.parseHints(read(dict.getHintStart(), (int) (dict.getHintEnd() - dict.getHintStart())))) {
+                Log.d(TAG, "advance: " + bookId + " bad hint table, download whole file");
+                fallBack();
+                return;
+            }
+            hintsParsed = true;
+            downloader.prioritize(dict.getTailStart(), total);
+        }
+        if (hints == null) {
+            if (downloader.isDownloaded(0, dict.firstPageEnd) && downloader.isDownloaded(dict.getTailStart(), total)) {
+                hints = dict;
+                Log.d(TAG, "advance: " + bookId + " openable after " + (SystemClock.uptimeMillis() - startMs) + "ms, "
+                        + dict.pageCount + " pages");
+                postOpenable();
+            }
+            return;
+        }
+        postPagesAvailable();
+    }
+
+    // chi truoc khi mo: sau onOpenable thi advance khong con doc dict/hint nua
+    private void fallBack() {
+        notLinearized = true;
+        if (hints == null) {
+            fallback = true;
+            downloader.cancel();
+        }
+    }
+
+    private byte[] read(long start, int length) throws IOException {
+        byte[] data = new byte[length];
+        RandomAccessFile in = new RandomAccessFile(streamFile, "r");
+        try {
+            in.seek(start);
+            in.readFully(data);
+        } finally {
+            in.close();
+        }
+        return data;
+    }
+
+    // trang chi mo duoc khi doan byte cua no da tai: pdfium giu object doc loi, mo som se hong luon
+    @Override
+    public boolean isPageAvailable(int page) {
+        LinearizedHints current = hints;
+        if (current == null || page < 0 || page >= current.pageCount) {
+            return false;
+        }
+        return downloader.isDownloaded(current.pageStart(page), current.pageEnd(page));
+    }
+
+    // nguoi doc nhay toi trang chua tai
+    @Override
+    public void onPageWanted(int page) {
+        LinearizedHints current = hints;
+        if (current != null && page >= 0 && page < current.pageCount) {
+            Log.d(TAG, "onPageWanted: promote page " + page);
+            downloader.prioritize(current.pageStart(page), current.pageEnd(page));
+        }
+    }
+
+    // file dang tai giu lai de lan sau mo tiep
+    public void cancel() {
+        cancelled = true;
+        downloader.cancel();
+        executor.shutdown();
+    }
+
+    private void postOpenable() {
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (!cancelled) {
+                    listener.onOpenable(streamFile);
+                }
+            }
+        });
+    }
+
+    private void postPagesAvailable() {
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (!cancelled) {
+                    listener.onPagesAvailable();
+                }
+            }
+        });
+    }
+
+    private void postProgress(long bytes, long total) {
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (!cancelled) {
+                    listener.onProgress(bytes, total);
+                }
+            }
+        });
+    }
+
+    private void postComplete(File file) {
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (!cancelled) {
+                    listener.onComplete(file);
+                }
+            }
+        });
+    }
+
+    private void postNotLinearized() {
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (!cancelled) {
+                    listener.onNotLinearized();
+                }
+            }
+        });
+    }
+
+    private void postError(Exception e) {
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (!cancelled) {
+                    listener.onError(e);
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,52 @@
+package com.pluto.bookapp.reader;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+
+// Trang dang doc cua mot cuon sach, luu tren may (SharedPreferences).
+// Lat trang lien tuc thi chi ghi mot lan, SAVE_DELAY_MS sau lan lat cuoi.
+public class ReadingPosition {
+
+    private static final String PREFS = "reading_position";
+    private static final long SAVE_DELAY_MS = 1000;
+
+    private final SharedPreferences prefs;
+    private final String bookId;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+
+    private int pendingPage = -1;
+
+    public ReadingPosition(Context context, String bookId) {
+        this.prefs = context.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+        this.bookId = bookId;
+    }
+
+    // trang da luu, 0 neu chua doc
+    public int get() {
+        return prefs.getInt(bookId, 0);
+    }
+
+    public void save(int page) {
+        pendingPage = page;
+        handler.removeCallbacks(saveRunnable);
+        handler.postDelayed(saveRunnable, SAVE_DELAY_MS);
+    }
+
+    // ghi ngay (thoat man hinh, app vao nen)
+    public void flush() {
+        handler.removeCallbacks(saveRunnable);
+        saveRunnable.run();
+    }
+
+    private final Runnable saveRunnable = new Runnable() {
+        @Override
+        public void run() {
+            if (pendingPage >= 0) {
+                prefs.edit().putInt(bookId, pendingPage).apply();
+                pendingPage = -1;
+            }
+        }
+    };
+}
@@ -0,0 +1,82 @@
+package com.pluto.bookapp.reader;
+
+import java.util.Arrays;
+
+// Do thoi gian ve tung trang cua reader (ms) va ty le trang da co san khi cuon toi.
+// Giu RECENT lan ve gan nhat de tinh trung vi / p95.
+public class RenderStats {
+
+    private static final int RECENT = 128;
+
+    private static final long[] recent = new long[RECENT];
+    private static int recentCount;
+    private static int recentNext;
+
+    private static long renderCount;
+    private static long totalRenderMs;
+    private static long maxRenderMs;
+
+    // trang can hien da co trong cache (render-ahead trung) / phai cho ve
+    private static long hits;
+    private static long misses;
+
+    private RenderStats() {
+    }
+
+    public static synchronized void recordRender(long ms) {
+        recent[recentNext] = ms;
+        recentNext = (recentNext + 1) % RECENT;
+        recentCount = Math.min(recentCount + 1, RECENT);
+        renderCount++;
+        totalRenderMs += ms;
+        maxRenderMs = Math.max(maxRenderMs, ms);
+    }
+
+    public static synchronized void recordHit() {
+        hits++;
+    }
+
+    public static synchronized void recordMiss() {
+        misses++;
+    }
+
+    public static synchronized long getRenderCount() {
+        return renderCount;
+    }
+
+    public static synchronized long getAverageRenderMs() {
+        return renderCount == 0 ? 0 : totalRenderMs / renderCount;
+    }
+
+    public static synchronized long getMaxRenderMs() {
+        return maxRenderMs;
+    }
+
+    // percentile trong cac lan ve gan day, vd 50 hoac 95
+    public static synchronized long getRecentRenderMs(int percentile) {
+        if (recentCount == 0) {
+            return 0;
+        }
+        long[] sorted = Arrays.copyOf(recent, recentCount);
+        Arrays.sort(sorted);
+        int index = Math.min(recentCount - 1, recentCount * percentile / 100);
+        return sorted[index];
+    }
+
+    public static synchronized long getHits() {
+        return hits;
+    }
+
+    public static synchronized long getMisses() {
+        return misses;
+    }
+
+    public static String summary() {
+        return "renders " + getRenderCount()
+                + ", avg " + getAverageRenderMs() + "ms"
+                + ", p50 " + getRecentRenderMs(50) + "ms"
+                + ", p95 " + getRecentRenderMs(95) + "ms"
+                + ", max " + getMaxRenderMs() + "ms"
+                + ", ready " + getHits() + "/" + (getHits() + getMisses());
+    }
+}
@@ -0,0 +1,163 @@
+package com.pluto.bookapp.reader;
+
+import android.graphics.pdf.PdfRenderer;
+import android.os.ParcelFileDescriptor;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Nhieu PdfRenderer tren cung mot file de ve nhieu trang song song (mot PdfRenderer chi mo duoc
+// mot trang moi luc). File mo mot lan luc tao pool, moi renderer dup descriptor nay nen van doc duoc
+// khi file bi doi ten (sach dang tai xong). Renderer mo khi can lan dau, toi da size cai.
+// Muon theo thu tu (semaphore fair), doi qua timeout thi bao loi thay vi treo thread ve.
+public class RendererPool {
+
+    private static final String TAG = "RENDERER_POOL";
+
+    private final File file;
+    private final ParcelFileDescriptor base;
+    private final int size;
+    private final Semaphore permits;
+    // renderer dang ranh, khoa bang chinh no
+    private final ArrayDeque<PdfRenderer> idle = new ArrayDeque<>();
+    private int created;
+    private boolean closed;
+
+    private final AtomicInteger checkouts = new AtomicInteger();
+    private final AtomicInteger timeouts = new AtomicInteger();
+    private final AtomicInteger waited = new AtomicInteger();
+    private final AtomicLong totalWaitMs = new AtomicLong();
+    private final AtomicLong maxWaitMs = new AtomicLong();
+
+    // mot nua so core (core con lai cho UI va mang), it nhat 1, nhieu nhat 4
+    public static int defaultSize() {
+        int cores = Runtime.getRuntime().availableProcessors();
+        return Math.max(1, Math.min(4, cores / 2));
+    }
+
+    public RendererPool(File file, int size) throws IOException {
+        this.file = file;
+        this.base = ParcelFileDescriptor.open(file, ParcelFileDescriptor.MODE_READ_ONLY);
+        this.size = Math.max(1, size);
+        this.permits = new Semaphore(this.size, true);
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    // tra lai bang release() trong finally
+    public PdfRenderer acquire(long timeoutMs) throws IOException, InterruptedException, TimeoutException {
+        long start = SystemClock.uptimeMillis();
+        if (!permits.tryAcquire(timeoutMs, TimeUnit.MILLISECONDS)) {
+            timeouts.incrementAndGet();
+            throw new TimeoutException("No renderer free after " + timeoutMs + "ms");
+        }
+        long waitMs = SystemClock.uptimeMillis() - start;
+        checkouts.incrementAndGet();
+        if (waitMs > 0) {
+            waited.incrementAndGet();
+            totalWaitMs.addAndGet(waitMs);
+            if (waitMs > maxWaitMs.get()) {
+                maxWaitMs.set(waitMs);
+            }
+        }
+
+        synchronized (idle) {
+            if (closed) {
+                permits.release();
+                throw new IOException("Renderer pool closed");
+            }
+            PdfRenderer renderer = idle.pollFirst();
+            if (renderer != null) {
+                return renderer;
+            }
+            created++;
+        }
+        // mo file ngoai khoa, mat vai chuc ms voi sach lon
+        try {
+            return open();
+        } catch (IOException | RuntimeException e) {
+            synchronized (idle) {
+                created--;
+            }
+            permits.release();
+            throw e;
+        }
+    }
+
+    public void release(PdfRenderer renderer) {
+        boolean close;
+        synchronized (idle) {
+            close = closed;
+            if (!close) {
+                idle.addFirst(renderer);
+            }
+        }
+        if (close) {
+            // pool da dong khi dang ve
+            renderer.close();
+        }
+        permits.release();
+    }
+
+    private PdfRenderer open() throws IOException {
+        // PdfRenderer dong pfd khi close. Ban dup dung chung offset nhung PdfRenderer doc bang pread
+        ParcelFileDescriptor pfd = base.dup();
+        try {
+            return new PdfRenderer(pfd);
+        } catch (IOException | RuntimeException e) {
+            pfd.close();
+            throw e;
+        }
+    }
+
+    // renderer dang ranh dong ngay, renderer dang ve dong khi release
+    public void close() {
+        synchronized (idle) {
+            closed = true;
+            for (PdfRenderer renderer : idle) {
+                renderer.close();
+            }
+            idle.clear();
+        }
+        // renderer dang ve giu ban dup rieng
+        try {
+            base.close();
+        } catch (IOException e) {
+            Log.d(TAG, "close: " + e.getMessage());
+        }
+        Log.d(TAG, "close: " + summary());
+    }
+
+    public int getCheckoutCount() {
+        return checkouts.get();
+    }
+
+    public int getTimeoutCount() {
+        return timeouts.get();
+    }
+
+    public long getAverageWaitMs() {
+        int n = waited.get();
+        return n == 0 ? 0 : totalWaitMs.get() / n;
+    }
+
+    public String summary() {
+        int created;
+        synchronized (idle) {
+            created = this.created;
+        }
+        return file.getName() + ": " + created + "/" + size + " renderers, " + checkouts.get() + " checkouts, "
+                + waited.get() + " waited (avg " + getAverageWaitMs() + "ms, max " + maxWaitMs.get() + "ms), "
+                + timeouts.get() + " timeouts";
+    }
+}
@@ -0,0 +1,166 @@
+package com.pluto.bookapp.reader;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.util.Log;
+import android.util.LruCache;
+
+import com.pluto.bookapp.DeviceProfile;
+import com.pluto.bookapp.cover.CoverRenderer;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+
+// Anh thu nho cac trang cua mot cuon sach: LRU tren bo nho + file webp tren dia
+// (cacheDir/thumbs/<bookId>_<generation>/<trang>.webp), mo lai sach thi thanh trang hien ngay.
+// Thu muc cua sach lau khong mo bi xoa truoc khi tong dung luong vuot budget.
+public class ThumbnailCache implements DeviceProfile.Trimmable {
+
+    private static final String TAG = "THUMBNAIL_CACHE";
+
+    public static final long DISK_BUDGET_BYTES = 20L * 1024 * 1024;//20MB
+
+    private final LruCache<Integer, Bitmap> memoryCache;
+    private final File rootDir;
+    private final File bookDir;
+
+    // memoryBytes: DeviceProfile.getThumbnailCacheBytes, vai tram anh 64px
+    public ThumbnailCache(Context context, String key, int memoryBytes) {
+        memoryCache = new LruCache<Integer, Bitmap>(memoryBytes) {
+            @Override
+            protected int sizeOf(Integer key, Bitmap value) {
+                return value.getByteCount();
+            }
+        };
+
+        rootDir = new File(context.getCacheDir(), "thumbs");
+        bookDir = new File(rootDir, key);
+    }
+
+    // file trong kho va file dang tai deu ten "<bookId>_<generation>.<duoi>"
+    public static String keyOf(File bookFile) {
+        String name = bookFile.getName();
+        int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(0, dot) : name;
+    }
+
+    public Bitmap getFromMemory(int page) {
+        return memoryCache.get(page);
+    }
+
+    // doc tu dia, goi tren background thread
+    public Bitmap getFromDisk(int page) {
+        File file = thumbFile(page);
+        if (!file.exists()) {
+            return null;
+        }
+        Bitmap bitmap = BitmapFactory.decodeFile(file.getPath());
+        if (bitmap == null) {
+            file.delete();
+            return null;
+        }
+        memoryCache.put(page, bitmap);
+        return bitmap;
+    }
+
+    // goi tren background thread
+    public void put(int page, Bitmap bitmap) {
+        memoryCache.put(page, bitmap);
+
+        bookDir.mkdirs();
+        File file = thumbFile(page);
+        File tmp = new File(bookDir, file.getName() + ".tmp");
+        try {
+            FileOutputStream out = new FileOutputStream(tmp);
+            out.write(CoverRenderer.encodeWebp(bitmap));
+            out.close();
+            if (!tmp.renameTo(file)) {
+                tmp.delete();
+            }
+        } catch (IOException e) {
+            tmp.delete();
+            Log.d(TAG, "put: " + e.getMessage());
+        }
+    }
+
+    // anh thu nho con tren dia, doc lai nhanh
+    @Override
+    public void trimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) {
+            memoryCache.evictAll();
+        }
+    }
+
+    // danh dau sach vua mo va xoa thu muc cua sach mo lau nhat khi vuot budget. Goi tren background thread
+    public void touchAndTrim() {
+        bookDir.mkdirs();
+        bookDir.setLastModified(System.currentTimeMillis());
+
+        File[] dirs = rootDir.listFiles();
+        if (dirs == null) {
+            return;
+        }
+        long total = 0;
+        long[] sizes = new long[dirs.length];
+        for (int i = 0; i < dirs.length; i++) {
+            sizes[i] = sizeOf(dirs[i]);
+            total += sizes[i];
+        }
+        if (total <= DISK_BUDGET_BYTES) {
+            return;
+        }
+
+        Integer[] order = new Integer[dirs.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return Long.compare(dirs[a].lastModified(), dirs[b].lastModified());
+            }
+        });
+        for (int i : order) {
+            if (total <= DISK_BUDGET_BYTES) {
+                break;
+            }
+            if (dirs[i].equals(bookDir)) {
+                continue;
+            }
+            total -= sizes[i];
+            deleteDir(dirs[i]);
+            Log.d(TAG, "touchAndTrim: delete " + dirs[i].getName());
+        }
+    }
+
+    private File thumbFile(int page) {
+        return new File(bookDir, page + ".webp");
+    }
+
+    private static long sizeOf(File dir) {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return dir.length();
+        }
+        long size = 0;
+        for (File file : files) {
+            size += file.length();
+        }
+        return size;
+    }
+
+    private static void deleteDir(File dir) {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+}
@@ -0,0 +1,183 @@
+package com.pluto.bookapp.reader;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.graphics.pdf.PdfRenderer;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeoutException;
+
+// Ve anh thu nho (THUMB_WIDTH px) cho thanh trang, chi cac o dang hien. Mot thread, muon
+// renderer tu pool cua PageRenderer nen trang sach van duoc ve song song. O yeu cau sau cung
+// ve truoc (dang keo thanh trang), o da cuon khoi man hinh thi bo.
+public class ThumbnailRenderer {
+
+    private static final String TAG = "THUMBNAIL_RENDERER";
+
+    public static final int THUMB_WIDTH = 64;
+
+    private static final long ACQUIRE_TIMEOUT_MS = 2000;
+    // ve them vai o hai ben vung dang hien
+    private static final int VISIBLE_SLACK = 2;
+
+    public interface Listener {
+        void onThumbnail(int page, Bitmap bitmap);
+    }
+
+    private final RendererPool pool;
+    private final ThumbnailCache cache;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // khoa bang requested
+    private final ArrayDeque<Integer> requested = new ArrayDeque<>();
+    private final HashSet<Integer> waiting = new HashSet<>();
+    private volatile int firstVisible;
+    private volatile int lastVisible = Integer.MAX_VALUE;
+    private volatile PageRenderer.PageSource pageSource;
+    private volatile boolean closed;
+
+    private Listener listener;
+
+    public ThumbnailRenderer(RendererPool pool, ThumbnailCache cache) {
+        this.pool = pool;
+        this.cache = cache;
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                cache.touchAndTrim();
+            }
+        });
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    // sach dang tai: trang chua tai xong thi cho, khong uu tien tai cho anh thu nho
+    public void setPageSource(PageRenderer.PageSource pageSource) {
+        this.pageSource = pageSource;
+        if (pageSource == null) {
+            retryWaiting();
+        }
+    }
+
+    public void retryWaiting() {
+        Integer[] retry;
+        synchronized (requested) {
+            retry = waiting.toArray(new Integer[0]);
+            waiting.clear();
+        }
+        for (int page : retry) {
+            request(page);
+        }
+    }
+
+    public void setVisibleRange(int first, int last) {
+        firstVisible = first;
+        lastVisible = last;
+    }
+
+    public void request(int page) {
+        if (closed) {
+            return;
+        }
+        synchronized (requested) {
+            requested.remove(page);
+            requested.addFirst(page);
+        }
+        executor.execute(renderLatest);
+    }
+
+    private final Runnable renderLatest = new Runnable() {
+        @Override
+        public void run() {
+            Integer next;
+            synchronized (requested) {
+                next = requested.pollFirst();
+            }
+            if (next == null || closed) {
+                return;
+            }
+            int page = next;
+            if (page < firstVisible - VISIBLE_SLACK || page > lastVisible + VISIBLE_SLACK) {
+                return;
+            }
+            if (cache.getFromMemory(page) != null) {
+                return;
+            }
+            Bitmap bitmap = cache.getFromDisk(page);
+            if (bitmap != null) {
+                postThumbnail(page, bitmap);
+                return;
+            }
+            PageRenderer.PageSource source = pageSource;
+            if (source != null && !source.isPageAvailable(page)) {
+                synchronized (requested) {
+                    waiting.add(page);
+                }
+                return;
+            }
+
+            PdfRenderer renderer;
+            try {
+                renderer = pool.acquire(ACQUIRE_TIMEOUT_MS);
+            } catch (IOException | InterruptedException | TimeoutException e) {
+                Log.d(TAG, "render: page " + page + " " + e.getMessage());
+                return;
+            }
+            try {
+                bitmap = render(renderer, page);
+            } catch (RuntimeException e) {
+                Log.d(TAG, "render: page " + page + " " + e.getMessage());
+                return;
+            } finally {
+                pool.release(renderer);
+            }
+            cache.put(page, bitmap);
+            postThumbnail(page, bitmap);
+        }
+    };
+
+    private Bitmap render(PdfRenderer renderer, int index) {
+        PdfRenderer.Page page = renderer.openPage(index);
+        try {
+            int height = Math.max(1, Math.round((float) page.getHeight() * THUMB_WIDTH / page.getWidth()));
+            Bitmap bitmap = Bitmap.createBitmap(THUMB_WIDTH, height, Bitmap.Config.ARGB_8888);
+            // trang pdf nen trong suot
+            bitmap.eraseColor(Color.WHITE);
+            page.render(bitmap, null, null, PdfRenderer.Page.RENDER_MODE_FOR_DISPLAY);
+            return bitmap;
+        } finally {
+            page.close();
+        }
+    }
+
+    private void postThumbnail(int page, Bitmap bitmap) {
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (!closed && listener != null) {
+                    listener.onThumbnail(page, bitmap);
+                }
+            }
+        });
+    }
+
+    // dong truoc PageRenderer (pool)
+    public void close() {
+        closed = true;
+        synchronized (requested) {
+            requested.clear();
+            waiting.clear();
+        }
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,58 @@
+package com.pluto.bookapp.reader;
+
+import android.content.ComponentCallbacks2;
+import android.graphics.Bitmap;
+import android.util.Log;
+import android.util.LruCache;
+
+import com.pluto.bookapp.DeviceProfile;
+
+// Cac o (tile) da ve khi phong to, gioi han theo byte (DeviceProfile.getTileCacheBytes).
+// Key gom trang, muc zoom, cot va hang.
+public class TileCache implements DeviceProfile.Trimmable {
+
+    private static final String TAG = "TILE_CACHE";
+
+    private final LruCache<String, Bitmap> cache;
+
+    public TileCache(int maxBytes) {
+        cache = new LruCache<String, Bitmap>(maxBytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap value) {
+                return value.getByteCount();
+            }
+        };
+        Log.d(TAG, "TileCache: " + maxBytes + " bytes");
+    }
+
+    public static String key(int page, int level, int col, int row) {
+        return page + "/" + level + "/" + col + "/" + row;
+    }
+
+    public Bitmap get(String key) {
+        return cache.get(key);
+    }
+
+    public void put(String key, Bitmap bitmap) {
+        cache.put(key, bitmap);
+    }
+
+    public void evictAll() {
+        cache.evictAll();
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    // o ve lai duoc tu file, bo truoc ca PageCache
+    @Override
+    public void trimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            cache.evictAll();
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE) {
+            cache.trimToSize(cache.maxSize() / 2);
+        }
+        Log.d(TAG, "trimMemory: level " + level + ", " + cache.size() + " bytes left");
+    }
+}
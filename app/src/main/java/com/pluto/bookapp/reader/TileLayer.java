@@ -0,0 +1,266 @@
+package com.pluto.bookapp.reader;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.graphics.pdf.PdfRenderer;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.View;
+
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeoutException;
+
+// Ve net khi phong to: trang chia thanh o TILE_SIZE px, chi ve cac o dang hien o muc zoom hien tai
+// (2x hoac 4x) roi ve de len bitmap trang 1x. O chua co thi tam dung o muc zoom thap hon neu con
+// trong TileCache. Bo nho luc 4x chi khoang mot man hinh o, khong phai ca trang lon gap 4.
+public class TileLayer {
+
+    private static final String TAG = "TILE_LAYER";
+
+    public static final int TILE_SIZE = 256;
+
+    private static final long ACQUIRE_TIMEOUT_MS = 2000;
+
+    private final RendererPool pool;
+    private final TileCache cache;
+    private final ExecutorService executor;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private final Paint paint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    private final Rect src = new Rect();
+    private final RectF dst = new RectF();
+
+    // o can ve cua khung hinh gan nhat {trang, muc, cot, hang, chieu rong trang}, khoa bang queue
+    private final ArrayDeque<int[]> queue = new ArrayDeque<>();
+    private final HashSet<String> queued = new HashSet<>();
+    private final HashSet<String> rendering = new HashSet<>();
+
+    private volatile PageRenderer.PageSource pageSource;
+    private volatile Bitmap.Config bitmapConfig = Bitmap.Config.ARGB_8888;
+    private volatile boolean closed;
+    private Runnable onTileReady;
+
+    public TileLayer(RendererPool pool, TileCache cache) {
+        this.pool = pool;
+        this.cache = cache;
+        this.executor = Executors.newFixedThreadPool(pool.getSize());
+    }
+
+    // goi tren main thread khi co o moi
+    public void setOnTileReady(Runnable onTileReady) {
+        this.onTileReady = onTileReady;
+    }
+
+    public void setPageSource(PageRenderer.PageSource pageSource) {
+        this.pageSource = pageSource;
+    }
+
+    // giong PageRenderer.setBitmapConfig
+    public void setBitmapConfig(Bitmap.Config bitmapConfig) {
+        this.bitmapConfig = bitmapConfig;
+    }
+
+    // muc zoom cua o: gan scale nhat ma khong nho hon
+    public static int levelFor(float scale) {
+        return scale <= 2f ? 2 : 4;
+    }
+
+    // canvas da translate + scale, toa do la toa do chua phong to cua RecyclerView.
+    // requestMissing = false khi dang pinch: chi ve o da co
+    public void draw(Canvas canvas, RecyclerView parent, float scale, float translateX, float translateY, boolean requestMissing) {
+        if (closed || scale <= 1f) {
+            setWanted(new ArrayList<int[]>());
+            return;
+        }
+        int level = levelFor(scale);
+        float span = (float) TILE_SIZE / level;
+        // vung dang hien tren man hinh, doi ve toa do chua phong to
+        float left = -translateX / scale;
+        float top = -translateY / scale;
+        float right = (parent.getWidth() - translateX) / scale;
+        float bottom = (parent.getHeight() - translateY) / scale;
+
+        ArrayList<int[]> wanted = new ArrayList<>();
+        for (int i = 0; i < parent.getChildCount(); i++) {
+            View child = parent.getChildAt(i);
+            int page = parent.getChildAdapterPosition(child);
+            if (page == RecyclerView.NO_POSITION) {
+                continue;
+            }
+            int childLeft = child.getLeft();
+            int childTop = child.getTop();
+            float x0 = Math.max(left, childLeft) - childLeft;
+            float x1 = Math.min(right, child.getRight()) - childLeft;
+            float y0 = Math.max(top, childTop) - childTop;
+            float y1 = Math.min(bottom, child.getBottom()) - childTop;
+            if (x1 <= x0 || y1 <= y0) {
+                continue;
+            }
+
+            canvas.save();
+            canvas.clipRect(childLeft, childTop, child.getRight(), child.getBottom());
+            for (int row = (int) (y0 / span); row <= (int) ((y1 - 0.01f) / span); row++) {
+                for (int col = (int) (x0 / span); col <= (int) ((x1 - 0.01f) / span); col++) {
+                    dst.set(childLeft + col * span, childTop + row * span,
+                            childLeft + (col + 1) * span, childTop + (row + 1) * span);
+                    Bitmap tile = cache.get(TileCache.key(page, level, col, row));
+                    if (tile != null) {
+                        canvas.drawBitmap(tile, null, dst, paint);
+                        continue;
+                    }
+                    drawPlaceholder(canvas, page, level, col, row);
+                    wanted.add(new int[]{page, level, col, row, child.getWidth()});
+                }
+            }
+            canvas.restore();
+        }
+        if (requestMissing) {
+            setWanted(wanted);
+        }
+    }
+
+    // phan tuong ung cua o muc thap hon, khong co thi de bitmap trang 1x ben duoi
+    private void drawPlaceholder(Canvas canvas, int page, int level, int col, int row) {
+        for (int lower = level / 2; lower >= 2; lower /= 2) {
+            int ratio = level / lower;
+            Bitmap tile = cache.get(TileCache.key(page, lower, col / ratio, row / ratio));
+            if (tile != null) {
+                int size = TILE_SIZE / ratio;
+                int x = (col % ratio) * size;
+                int y = (row % ratio) * size;
+                src.set(x, y, x + size, y + size);
+                canvas.drawBitmap(tile, src, dst, paint);
+                return;
+            }
+        }
+    }
+
+    // thay hang doi bang cac o cua khung hinh nay, o da cuon khoi man hinh thi khong ve nua
+    private void setWanted(ArrayList<int[]> wanted) {
+        int added = 0;
+        synchronized (queue) {
+            HashSet<String> old = new HashSet<>(queued);
+            queue.clear();
+            queued.clear();
+            for (int[] tile : wanted) {
+                String key = TileCache.key(tile[0], tile[1], tile[2], tile[3]);
+                if (rendering.contains(key) || !queued.add(key)) {
+                    continue;
+                }
+                queue.addLast(tile);
+                if (!old.contains(key)) {
+                    added++;
+                }
+            }
+        }
+        for (int i = 0; i < added && !closed; i++) {
+            executor.execute(renderNext);
+        }
+    }
+
+    private final Runnable renderNext = new Runnable() {
+        @Override
+        public void run() {
+            int[] tile;
+            String key;
+            synchronized (queue) {
+                tile = queue.pollFirst();
+                if (tile == null || closed) {
+                    return;
+                }
+                key = TileCache.key(tile[0], tile[1], tile[2], tile[3]);
+                queued.remove(key);
+                rendering.add(key);
+            }
+            try {
+                renderTile(key, tile);
+            } finally {
+                synchronized (queue) {
+                    rendering.remove(key);
+                }
+            }
+        }
+    };
+
+    private void renderTile(String key, int[] tile) {
+        if (cache.get(key) != null) {
+            return;
+        }
+        PageRenderer.PageSource source = pageSource;
+        if (source != null && !source.isPageAvailable(tile[0])) {
+            // ve lai khi trang tai xong va duoc ve lai
+            return;
+        }
+        PdfRenderer renderer;
+        try {
+            renderer = pool.acquire(ACQUIRE_TIMEOUT_MS);
+        } catch (IOException | InterruptedException | TimeoutException e) {
+            Log.d(TAG, "renderTile: " + key + " " + e.getMessage());
+            return;
+        }
+        long start = SystemClock.uptimeMillis();
+        Bitmap bitmap;
+        try {
+            bitmap = render(renderer, tile[0], tile[1], tile[2], tile[3], tile[4]);
+        } catch (RuntimeException e) {
+            Log.d(TAG, "renderTile: " + key + " " + e.getMessage());
+            return;
+        } finally {
+            pool.release(renderer);
+        }
+        cache.put(key, bitmap);
+        Log.d(TAG, "renderTile: " + key + " in " + (SystemClock.uptimeMillis() - start) + "ms, cache " + cache.size() + " bytes");
+
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (!closed && onTileReady != null) {
+                    onTileReady.run();
+                }
+            }
+        });
+    }
+
+    // o (col, row) cua trang ve rong width * level px
+    private Bitmap render(PdfRenderer renderer, int index, int level, int col, int row, int width) {
+        PdfRenderer.Page page = renderer.openPage(index);
+        try {
+            float pageScale = (float) width * level / page.getWidth();
+            Matrix matrix = new Matrix();
+            matrix.setScale(pageScale, pageScale);
+            matrix.postTranslate(-col * TILE_SIZE, -row * TILE_SIZE);
+
+            Bitmap bitmap = Bitmap.createBitmap(TILE_SIZE, TILE_SIZE, Bitmap.Config.ARGB_8888);
+            // trang pdf nen trong suot
+            bitmap.eraseColor(Color.WHITE);
+            page.render(bitmap, null, matrix, PdfRenderer.Page.RENDER_MODE_FOR_DISPLAY);
+            return PageRenderer.convert(bitmap, bitmapConfig);
+        } finally {
+            page.close();
+        }
+    }
+
+    // dong truoc PageRenderer (pool)
+    public void close() {
+        closed = true;
+        synchronized (queue) {
+            queue.clear();
+            queued.clear();
+        }
+        executor.shutdown();
+    }
+}
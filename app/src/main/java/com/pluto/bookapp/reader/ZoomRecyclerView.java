@@ -0,0 +1,141 @@
+package com.pluto.bookapp.reader;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.util.AttributeSet;
+import android.view.GestureDetector;
+import android.view.MotionEvent;
+import android.view.ScaleGestureDetector;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.RecyclerView;
+
+// RecyclerView cac trang sach co pinch/double tap de phong to. Ca danh sach duoc ve phong to
+// bang canvas (khong layout lai), keo ngang de xem hai ben, keo doc thi RecyclerView tu cuon.
+// TileLayer ve de len cac o net o muc zoom hien tai.
+public class ZoomRecyclerView extends RecyclerView {
+
+    public static final float MAX_SCALE = 4f;
+    private static final float DOUBLE_TAP_SCALE = 2f;
+
+    private final ScaleGestureDetector scaleDetector;
+    private final GestureDetector gestureDetector;
+
+    private float scale = 1f;
+    private float translateX;
+    private float translateY;
+    private boolean scaling;
+
+    private TileLayer tileLayer;
+
+    public ZoomRecyclerView(@NonNull Context context) {
+        this(context, null);
+    }
+
+    public ZoomRecyclerView(@NonNull Context context, @Nullable AttributeSet attrs) {
+        super(context, attrs);
+        scaleDetector = new ScaleGestureDetector(context, new ScaleGestureDetector.SimpleOnScaleGestureListener() {
+            @Override
+            public boolean onScaleBegin(@NonNull ScaleGestureDetector detector) {
+                scaling = true;
+                return true;
+            }
+
+            @Override
+            public boolean onScale(@NonNull ScaleGestureDetector detector) {
+                zoomTo(scale * detector.getScaleFactor(), detector.getFocusX(), detector.getFocusY());
+                return true;
+            }
+
+            @Override
+            public void onScaleEnd(@NonNull ScaleGestureDetector detector) {
+                scaling = false;
+                // ve cac o o muc zoom moi
+                invalidate();
+            }
+        });
+        gestureDetector = new GestureDetector(context, new GestureDetector.SimpleOnGestureListener() {
+            @Override
+            public boolean onDoubleTap(@NonNull MotionEvent e) {
+                zoomTo(scale > 1f ? 1f : DOUBLE_TAP_SCALE, e.getX(), e.getY());
+                return true;
+            }
+
+            @Override
+            public boolean onScroll(@Nullable MotionEvent e1, @NonNull MotionEvent e2, float distanceX, float distanceY) {
+                // keo ngang khi dang phong to, keo doc de RecyclerView xu ly
+                if (scale > 1f && !scaling) {
+                    translateX = clamp(translateX - distanceX, getWidth());
+                    invalidate();
+                }
+                return false;
+            }
+        });
+    }
+
+    public void setTileLayer(TileLayer tileLayer) {
+        this.tileLayer = tileLayer;
+        if (tileLayer != null) {
+            tileLayer.setOnTileReady(new Runnable() {
+                @Override
+                public void run() {
+                    invalidate();
+                }
+            });
+        }
+        invalidate();
+    }
+
+    private void zoomTo(float newScale, float focusX, float focusY) {
+        newScale = Math.max(1f, Math.min(MAX_SCALE, newScale));
+        // giu diem duoi ngon tay dung yen khi phong to
+        float ratio = newScale / scale;
+        translateX = focusX - (focusX - translateX) * ratio;
+        translateY = focusY - (focusY - translateY) * ratio;
+        scale = newScale;
+        translateX = clamp(translateX, getWidth());
+        translateY = clamp(translateY, getHeight());
+        invalidate();
+    }
+
+    private float clamp(float translate, int size) {
+        return Math.max(size - size * scale, Math.min(0, translate));
+    }
+
+    @Override
+    public boolean onInterceptTouchEvent(MotionEvent e) {
+        if (e.getPointerCount() > 1) {
+            return true;
+        }
+        return super.onInterceptTouchEvent(e);
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent e) {
+        scaleDetector.onTouchEvent(e);
+        gestureDetector.onTouchEvent(e);
+        if (scaling || e.getPointerCount() > 1) {
+            return true;
+        }
+        // quang duong keo doc tren man hinh = quang duong cuon / scale
+        MotionEvent scaled = MotionEvent.obtain(e);
+        scaled.setLocation(e.getX() / scale, e.getY() / scale);
+        boolean handled = super.onTouchEvent(scaled);
+        scaled.recycle();
+        return handled;
+    }
+
+    @Override
+    protected void dispatchDraw(Canvas canvas) {
+        canvas.save();
+        canvas.translate(translateX, translateY);
+        canvas.scale(scale, scale);
+        super.dispatchDraw(canvas);
+        if (tileLayer != null) {
+            // dang pinch thi scale doi lien tuc, chi ve o da co
+            tileLayer.draw(canvas, this, scale, translateX, translateY, !scaling);
+        }
+        canvas.restore();
+    }
+}
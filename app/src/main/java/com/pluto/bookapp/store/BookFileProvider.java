@@ -0,0 +1,163 @@
+package com.pluto.bookapp.store;
+
+import android.content.ClipData;
+import android.content.ContentProvider;
+import android.content.ContentValues;
+import android.content.Context;
+import android.content.Intent;
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.net.Uri;
+import android.os.ParcelFileDescriptor;
+import android.provider.OpenableColumns;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.pluto.bookapp.MyApplication;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.List;
+
+// Cho app khac doc sach trong BookStore ma khong chep ra file moi: openFile tra ve fd chi doc
+// cua chinh file trong kho. Uri dang content://<package>.books/book/<bookId>/<ten>.pdf,
+// provider khong export, app nhan chi doc duoc qua quyen FLAG_GRANT_READ_URI_PERMISSION.
+public class BookFileProvider extends ContentProvider {
+
+    private static final String TAG = "BOOK_FILE_PROVIDER";
+
+    private static final String MIME_PDF = "application/pdf";
+    private static final String PATH_BOOK = "book";
+
+    private static final String[] DEFAULT_PROJECTION = {OpenableColumns.DISPLAY_NAME, OpenableColumns.SIZE};
+
+    public static String authority(Context context) {
+        return context.getPackageName() + ".books";
+    }
+
+    public static Uri getUri(Context context, String bookId, String title) {
+        return new Uri.Builder()
+                .scheme("content")
+                .authority(authority(context))
+                .appendPath(PATH_BOOK)
+                .appendPath(bookId)
+                .appendPath(displayName(title))
+                .build();
+    }
+
+    // "Chia se": gui file cho app khac (mail, chat...)
+    public static Intent shareIntent(Context context, String bookId, String title) {
+        Uri uri = getUri(context, bookId, title);
+        Intent intent = new Intent(Intent.ACTION_SEND);
+        intent.setType(MIME_PDF);
+        intent.putExtra(Intent.EXTRA_STREAM, uri);
+        // chooser chi chuyen quyen doc cho uri nam trong ClipData
+        intent.setClipData(ClipData.newRawUri(title, uri));
+        intent.addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION);
+        return Intent.createChooser(intent, title);
+    }
+
+    // "Mo bang...": doc sach bang trinh doc pdf khac
+    public static Intent viewIntent(Context context, String bookId, String title) {
+        Intent intent = new Intent(Intent.ACTION_VIEW);
+        intent.setDataAndType(getUri(context, bookId, title), MIME_PDF);
+        intent.addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION);
+        return Intent.createChooser(intent, title);
+    }
+
+    private static String displayName(String title) {
+        String name = title == null ? "" : title.replaceAll("[\\\\/:*?\"<>|]", "_").trim();
+        return (name.isEmpty() ? "book" : name) + ".pdf";
+    }
+
+    @Override
+    public boolean onCreate() {
+        return true;
+    }
+
+    // file trong kho, null neu uri sai hoac sach da bi xoa khoi kho
+    @Nullable
+    private File fileOf(Uri uri) {
+        List<String> segments = uri.getPathSegments();
+        BookStore bookStore = MyApplication.getBookStore();
+        if (segments.size() != 3 || !PATH_BOOK.equals(segments.get(0)) || bookStore == null) {
+            return null;
+        }
+        return bookStore.getStoredFile(segments.get(1));
+    }
+
+    @Nullable
+    @Override
+    public ParcelFileDescriptor openFile(@NonNull Uri uri, @NonNull String mode) throws FileNotFoundException {
+        if (!"r".equals(mode)) {
+            throw new SecurityException("Read only: " + uri);
+        }
+        File file = fileOf(uri);
+        if (file == null) {
+            throw new FileNotFoundException(uri.toString());
+        }
+        Log.d(TAG, "openFile: " + file.getName());
+        // kho co xoa file (LRU) trong luc app kia dang doc thi fd van dung duoc den khi dong
+        return ParcelFileDescriptor.open(file, ParcelFileDescriptor.MODE_READ_ONLY);
+    }
+
+    // app nhan hoi ten va dung luong truoc khi doc
+    @Nullable
+    @Override
+    public Cursor query(@NonNull Uri uri, @Nullable String[] projection, @Nullable String selection,
+                        @Nullable String[] selectionArgs, @Nullable String sortOrder) {
+        File file = fileOf(uri);
+        if (file == null) {
+            return null;
+        }
+        if (projection == null) {
+            projection = DEFAULT_PROJECTION;
+        }
+
+        String[] columns = new String[projection.length];
+        Object[] values = new Object[projection.length];
+        int count = 0;
+        for (String column : projection) {
+            if (OpenableColumns.DISPLAY_NAME.equals(column)) {
+                columns[count] = column;
+                values[count++] = uri.getLastPathSegment();
+            } else if (OpenableColumns.SIZE.equals(column)) {
+                columns[count] = column;
+                values[count++] = file.length();
+            }
+        }
+
+        String[] resultColumns = new String[count];
+        Object[] resultValues = new Object[count];
+        System.arraycopy(columns, 0, resultColumns, 0, count);
+        System.arraycopy(values, 0, resultValues, 0, count);
+        MatrixCursor cursor = new MatrixCursor(resultColumns, 1);
+        cursor.addRow(resultValues);
+        return cursor;
+    }
+
+    @Nullable
+    @Override
+    public String getType(@NonNull Uri uri) {
+        return MIME_PDF;
+    }
+
+    @Nullable
+    @Override
+    public Uri insert(@NonNull Uri uri, @Nullable ContentValues values) {
+        throw new UnsupportedOperationException("Read only provider");
+    }
+
+    @Override
+    public int delete(@NonNull Uri uri, @Nullable String selection, @Nullable String[] selectionArgs) {
+        throw new UnsupportedOperationException("Read only provider");
+    }
+
+    @Override
+    public int update(@NonNull Uri uri, @Nullable ContentValues values, @Nullable String selection,
+                      @Nullable String[] selectionArgs) {
+        throw new UnsupportedOperationException("Read only provider");
+    }
+}
@@ -0,0 +1,648 @@
+package com.pluto.bookapp.store;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.net.ConnectivityManager;
+import android.net.NetworkCapabilities;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Base64;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.google.android.gms.tasks.OnFailureListener;
+import com.google.android.gms.tasks.OnSuccessListener;
+import com.google.firebase.storage.FileDownloadTask;
+import com.google.firebase.storage.FirebaseStorage;
+import com.google.firebase.storage.OnProgressListener;
+import com.google.firebase.storage.StorageMetadata;
+import com.google.firebase.storage.StorageReference;
+import com.pluto.bookapp.cover.CoverCache;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Kho sach offline trong filesDir/books, dung chung cho reader, anh bia chi tiet va download.
+// Moi sach giu mot ban (theo generation cua url), index.json ghi lai md5, dung luong, lan dung cuoi
+// va co ghim hay khong. Vuot budget thi xoa sach dung lau nhat, sach da ghim (user tai ve) khong bi xoa.
+public class BookStore {
+
+    private static final String TAG = "BOOK_STORE";
+
+    public static final long DEFAULT_BUDGET_BYTES = 500L * 1024 * 1024;//500MB
+
+    private static final String PREFS = "book_store";
+    private static final String PREF_BUDGET = "budget";
+
+    public interface Callback {
+        void onReady(File file);
+
+        void onProgress(long bytes, long total);
+
+        void onError(Exception e);
+    }
+
+    // cho phep huy trong luc dang tai
+    public static class Request {
+        private volatile boolean cancelled;
+        private volatile FileDownloadTask task;
+
+        public void cancel() {
+            cancelled = true;
+            FileDownloadTask downloadTask = task;
+            if (downloadTask != null && downloadTask.isInProgress()) {
+                downloadTask.cancel();
+            }
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+
+    static class Entry {
+        String bookId;
+        String generation;
+        String md5;
+        // generation cua object tren Storage, doi moi lan upload lai ke ca khi url giu nguyen
+        String storageGeneration;
+        long size;
+        long lastAccess;
+        boolean pinned;
+        // sach yeu thich dang bat che do offline, khong bi don nhu sach ghim
+        boolean favorite;
+
+        String fileName() {
+            return bookId + "_" + generation + ".pdf";
+        }
+    }
+
+    // file tai do dang cua BookDownloadWorker, giu qua cac lan app bi tat
+    private static final long PARTIAL_MAX_AGE_MS = 7L * 24 * 60 * 60 * 1000;
+
+    private final File dir;
+    private final File partialDir;
+    private final File indexFile;
+    private final SharedPreferences prefs;
+    private final HashMap<String, Entry> entries = new HashMap<>();
+    private final ExecutorService ioExecutor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final MetadataCache metadataCache;
+    private final ConnectivityManager connectivityManager;
+
+    public BookStore(Context context, MetadataCache metadataCache) {
+        this.metadataCache = metadataCache;
+        connectivityManager = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        dir = new File(context.getFilesDir(), "books");
+        dir.mkdirs();
+        partialDir = new File(dir, "partial");
+        partialDir.mkdirs();
+        indexFile = new File(dir, "index.json");
+        prefs = context.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+
+        // index nho, doc ngay de getLocalFile dung tu lan goi dau
+        loadIndex();
+
+        long startedAt = System.currentTimeMillis();
+        ioExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                deleteOrphans(startedAt);
+                // ban cu cua reader truoc khi co kho sach
+                deleteRecursive(new File(context.getFilesDir(), "reader"));
+            }
+        });
+    }
+
+    // file da co va dung generation thi tra ve, khong thi null
+    public synchronized File getLocalFile(String bookId, String url) {
+        Entry entry = entries.get(bookId);
+        if (entry == null || !entry.generation.equals(CoverCache.generation(url))) {
+            return null;
+        }
+        File file = new File(dir, entry.fileName());
+        if (!file.exists()) {
+            entries.remove(bookId);
+            saveIndexAsync();
+            return null;
+        }
+        entry.lastAccess = System.currentTimeMillis();
+        saveIndexAsync();
+        return file;
+    }
+
+    // ban trong kho khop metadata hien tai (cung md5, hoac cung generation neu khong co md5) thi tra ve.
+    // url doi (token moi) nhung noi dung giong thi doi ten file theo url moi, khong tai lai
+    public synchronized File getCurrentFile(String bookId, String url, StorageMetadata metadata) {
+        Entry entry = entries.get(bookId);
+        if (entry == null || !matches(entry, metadata)) {
+            return null;
+        }
+        File file = new File(dir, entry.fileName());
+        if (!file.exists()) {
+            entries.remove(bookId);
+            saveIndexAsync();
+            return null;
+        }
+        String generation = CoverCache.generation(url);
+        if (!entry.generation.equals(generation)) {
+            File renamed = new File(dir, bookId + "_" + generation + ".pdf");
+            if (file.renameTo(renamed)) {
+                entry.generation = generation;
+                file = renamed;
+            }
+        }
+        if (entry.storageGeneration == null) {
+            entry.storageGeneration = metadata.getGeneration();
+        }
+        entry.lastAccess = System.currentTimeMillis();
+        saveIndexAsync();
+        return file;
+    }
+
+    // ban bat ky trong kho, dung khi khong co mang
+    public synchronized File getStoredFile(String bookId) {
+        Entry entry = entries.get(bookId);
+        if (entry == null) {
+            return null;
+        }
+        File file = new File(dir, entry.fileName());
+        if (!file.exists()) {
+            return null;
+        }
+        entry.lastAccess = System.currentTimeMillis();
+        saveIndexAsync();
+        return file;
+    }
+
+    private static boolean matches(Entry entry, StorageMetadata metadata) {
+        if (metadata.getMd5Hash() != null && entry.md5 != null) {
+            return metadata.getMd5Hash().equals(entry.md5);
+        }
+        return metadata.getGeneration() != null && metadata.getGeneration().equals(entry.storageGeneration);
+    }
+
+    // lay file cua sach, chua co hoac da cu thi tai ve kho. pin = true khi user chu dong tai sach.
+    // Metadata (vai tram byte, co cache TTL) quyet dinh ban trong kho con dung khong
+    public Request open(String bookId, String url, boolean pin, Callback callback) {
+        Request request = new Request();
+
+        if (!isOnline()) {
+            // khong co mang: mo ban dang co, khong doi metadata time out
+            File stored = getStoredFile(bookId);
+            if (stored != null) {
+                Log.d(TAG, "open: offline, use stored " + bookId);
+                postReady(request, callback, stored);
+                return request;
+            }
+        }
+
+        String generation = CoverCache.generation(url);
+        metadataCache.get(url, new MetadataCache.Callback() {
+            @Override
+            public void onMetadata(StorageMetadata metadata) {
+                if (request.isCancelled()) {
+                    return;
+                }
+                File local = getCurrentFile(bookId, url, metadata);
+                if (local != null) {
+                    if (pin) {
+                        setPinned(bookId, true);
+                    }
+                    callback.onReady(local);
+                    return;
+                }
+                StorageReference ref = FirebaseStorage.getInstance().getReferenceFromUrl(url);
+                download(request, ref, bookId, generation, metadata, pin, callback);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                if (request.isCancelled()) {
+                    return;
+                }
+                // khong kiem tra duoc thi ban cu van hon la bao loi
+                File stored = getStoredFile(bookId);
+                if (stored != null) {
+                    callback.onReady(stored);
+                } else {
+                    callback.onError(e);
+                }
+            }
+        });
+        return request;
+    }
+
+    private boolean isOnline() {
+        if (connectivityManager == null) {
+            return true;
+        }
+        NetworkCapabilities capabilities = connectivityManager.getNetworkCapabilities(connectivityManager.getActiveNetwork());
+        return capabilities != null && capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET);
+    }
+
+    private void download(Request request, StorageReference ref, String bookId, String generation,
+                          StorageMetadata metadata, boolean pin, Callback callback) {
+        // ten tam rieng cho moi lan tai, reader va download cung mo mot sach khong de len nhau
+        File partFile;
+        try {
+            partFile = File.createTempFile(bookId + "_" + generation + "_", ".part", dir);
+        } catch (IOException e) {
+            callback.onError(e);
+            return;
+        }
+        FileDownloadTask task = ref.getFile(partFile);
+        request.task = task;
+        if (request.isCancelled()) {
+            task.cancel();
+        }
+
+        task.addOnProgressListener(new OnProgressListener<FileDownloadTask.TaskSnapshot>() {
+                    @Override
+                    public void onProgress(@NonNull FileDownloadTask.TaskSnapshot snapshot) {
+                        callback.onProgress(snapshot.getBytesTransferred(), snapshot.getTotalByteCount());
+                    }
+                })
+                .addOnSuccessListener(new OnSuccessListener<FileDownloadTask.TaskSnapshot>() {
+                    @Override
+                    public void onSuccess(FileDownloadTask.TaskSnapshot taskSnapshot) {
+                        // kiem tra md5 va ghi index tren thread rieng, file co the rat lon
+                        ioExecutor.execute(new Runnable() {
+                            @Override
+                            public void run() {
+                                try {
+                                    File file = commit(partFile, bookId, generation, metadata, pin, false);
+                                    postReady(request, callback, file);
+                                } catch (IOException e) {
+                                    partFile.delete();
+                                    postError(request, callback, e);
+                                }
+                            }
+                        });
+                    }
+                })
+                .addOnFailureListener(new OnFailureListener() {
+                    @Override
+                    public void onFailure(@NonNull Exception e) {
+                        partFile.delete();
+                        if (!request.isCancelled()) {
+                            callback.onError(e);
+                        }
+                    }
+                });
+    }
+
+    // file .part co ten co dinh de tai tiep duoc sau khi app bi tat
+    public File getPartialFile(String bookId, String generation) {
+        return new File(partialDir, bookId + "_" + generation + ".part");
+    }
+
+    // FavoriteSyncWorker va BookDownloadWorker co unique work khac nhau, co the chay cung luc cho mot sach:
+    // moi worker mot file .part (va .ranges) rieng de khong ghi chong len nhau
+    public File getFavoritePartialFile(String bookId, String generation) {
+        return new File(partialDir, bookId + "_" + generation + ".fav.part");
+    }
+
+    // file cua reader mo sach khi dang tai (ProgressiveBook), tach rieng voi file .part cua worker
+    public File getStreamingFile(String bookId, String generation) {
+        return new File(partialDir, bookId + "_" + generation + ".stream");
+    }
+
+    // dua file tai xong vao kho (kiem tra md5, don cho). Goi tren thread nen
+    public File commitDownload(File partFile, String bookId, String generation, StorageMetadata metadata, boolean pin) throws IOException {
+        return commit(partFile, bookId, generation, metadata, pin, false);
+    }
+
+    public File commitFavorite(File partFile, String bookId, String generation, StorageMetadata metadata) throws IOException {
+        return commit(partFile, bookId, generation, metadata, false, true);
+    }
+
+    // goi tren ioExecutor hoac thread cua worker
+    private File commit(File partFile, String bookId, String generation, StorageMetadata metadata, boolean pin, boolean favorite) throws IOException {
+        String md5 = metadata.getMd5Hash();
+        if (md5 != null && !md5.equals(md5Of(partFile))) {
+            throw new IOException("Checksum mismatch for " + bookId);
+        }
+
+        Entry entry = new Entry();
+        entry.bookId = bookId;
+        entry.generation = generation;
+        entry.md5 = md5;
+        entry.storageGeneration = metadata.getGeneration();
+        entry.size = partFile.length();
+        entry.lastAccess = System.currentTimeMillis();
+
+        File file = new File(dir, entry.fileName());
+        if (!partFile.renameTo(file)) {
+            throw new IOException("Cannot move " + partFile.getName());
+        }
+
+        synchronized (this) {
+            Entry old = entries.put(bookId, entry);
+            if (old != null) {
+                // giu trang thai ghim/yeu thich, xoa ban cu (generation khac)
+                entry.pinned = old.pinned;
+                entry.favorite = old.favorite;
+                if (!old.generation.equals(generation)) {
+                    new File(dir, old.fileName()).delete();
+                }
+            }
+            entry.pinned |= pin;
+            entry.favorite |= favorite;
+            evict(bookId);
+            saveIndex();
+        }
+        Log.d(TAG, "commit: " + bookId + " " + entry.size + " bytes, total " + getTotalBytes());
+        return file;
+    }
+
+    // xoa sach dung lau nhat (khong ghim) toi khi tong dung luong nam trong budget
+    private synchronized void evict(String keepBookId) {
+        long total = getTotalBytes();
+        long budget = getBudget();
+        if (total <= budget) {
+            return;
+        }
+
+        ArrayList<Entry> candidates = new ArrayList<>();
+        for (Entry entry : entries.values()) {
+            if (!entry.pinned && !entry.favorite && !entry.bookId.equals(keepBookId)) {
+                candidates.add(entry);
+            }
+        }
+        Collections.sort(candidates, new Comparator<Entry>() {
+            @Override
+            public int compare(Entry a, Entry b) {
+                return Long.compare(a.lastAccess, b.lastAccess);
+            }
+        });
+
+        for (Entry entry : candidates) {
+            if (total <= budget) {
+                break;
+            }
+            new File(dir, entry.fileName()).delete();
+            entries.remove(entry.bookId);
+            total -= entry.size;
+            Log.d(TAG, "evict: " + entry.bookId + " " + entry.size + " bytes");
+        }
+    }
+
+    public synchronized void setPinned(String bookId, boolean pinned) {
+        Entry entry = entries.get(bookId);
+        if (entry != null && entry.pinned != pinned) {
+            entry.pinned = pinned;
+            if (!pinned) {
+                evict(null);
+            }
+            saveIndexAsync();
+        }
+    }
+
+    public synchronized boolean isPinned(String bookId) {
+        Entry entry = entries.get(bookId);
+        return entry != null && entry.pinned;
+    }
+
+    // bo yeu thich thi xoa luon file, tru khi user da chu dong tai (ghim)
+    public synchronized void setFavorite(String bookId, boolean favorite) {
+        Entry entry = entries.get(bookId);
+        if (entry == null || entry.favorite == favorite) {
+            return;
+        }
+        entry.favorite = favorite;
+        if (!favorite && !entry.pinned) {
+            entries.remove(bookId);
+            new File(dir, entry.fileName()).delete();
+        }
+        saveIndexAsync();
+    }
+
+    public synchronized ArrayList<String> getFavoriteIds() {
+        ArrayList<String> ids = new ArrayList<>();
+        for (Entry entry : entries.values()) {
+            if (entry.favorite) {
+                ids.add(entry.bookId);
+            }
+        }
+        return ids;
+    }
+
+
+    public synchronized void remove(String bookId) {
+        Entry entry = entries.remove(bookId);
+        if (entry != null) {
+            new File(dir, entry.fileName()).delete();
+            saveIndexAsync();
+        }
+    }
+
+    public synchronized long getTotalBytes() {
+        long total = 0;
+        for (Entry entry : entries.values()) {
+            total += entry.size;
+        }
+        return total;
+    }
+
+    public long getBudget() {
+        return prefs.getLong(PREF_BUDGET, DEFAULT_BUDGET_BYTES);
+    }
+
+    public synchronized void setBudget(long bytes) {
+        prefs.edit().putLong(PREF_BUDGET, bytes).apply();
+        evict(null);
+        saveIndexAsync();
+    }
+
+    private void postReady(Request request, Callback callback, File file) {
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (!request.isCancelled()) {
+                    callback.onReady(file);
+                }
+            }
+        });
+    }
+
+    private void postError(Request request, Callback callback, Exception e) {
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (!request.isCancelled()) {
+                    callback.onError(e);
+                }
+            }
+        });
+    }
+
+    // java.nio.file.Files can API 26, minSdk la 24
+    static String readText(File file) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        InputStream in = new FileInputStream(file);
+        try {
+            byte[] buffer = new byte[8 * 1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                bytes.write(buffer, 0, read);
+            }
+        } finally {
+            in.close();
+        }
+        return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    // md5 dang base64 giong StorageMetadata.getMd5Hash()
+    static String md5Of(File file) throws IOException {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("MD5");
+            InputStream in = new FileInputStream(file);
+            try {
+                byte[] buffer = new byte[64 * 1024];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    digest.update(buffer, 0, read);
+                }
+            } finally {
+                in.close();
+            }
+            return Base64.encodeToString(digest.digest(), Base64.NO_WRAP);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private synchronized void loadIndex() {
+        if (indexFile.exists()) {
+            try {
+                String text = readText(indexFile);
+                JSONArray array = new JSONArray(text);
+                for (int i = 0; i < array.length(); i++) {
+                    JSONObject object = array.getJSONObject(i);
+                    Entry entry = new Entry();
+                    entry.bookId = object.getString("bookId");
+                    entry.generation = object.getString("generation");
+                    entry.md5 = object.optString("md5", null);
+                    entry.storageGeneration = object.optString("storageGeneration", null);
+                    entry.size = object.getLong("size");
+                    entry.lastAccess = object.getLong("lastAccess");
+                    entry.pinned = object.optBoolean("pinned");
+                    entry.favorite = object.optBoolean("favorite");
+                    if (new File(dir, entry.fileName()).exists()) {
+                        entries.put(entry.bookId, entry);
+                    }
+                }
+            } catch (IOException | JSONException e) {
+                Log.d(TAG, "loadIndex: " + e.getMessage());
+            }
+        }
+        Log.d(TAG, "loadIndex: " + entries.size() + " books, " + getTotalBytes() + " bytes");
+    }
+
+    // file khong co trong index (tai do dang, app bi tat giua chung) thi xoa,
+    // bo qua file vua tao sau khi app mo vi co the dang tai
+    private void deleteOrphans(long startedAt) {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        HashSet<String> known = new HashSet<>();
+        synchronized (this) {
+            for (Entry entry : entries.values()) {
+                known.add(entry.fileName());
+            }
+        }
+        for (File file : files) {
+            if (file.equals(partialDir)) {
+                deleteStalePartials();
+                continue;
+            }
+            if (!file.equals(indexFile) && !known.contains(file.getName()) && file.lastModified() < startedAt) {
+                Log.d(TAG, "deleteOrphans: " + file.getName());
+                file.delete();
+            }
+        }
+    }
+
+    // ban tai do ma lau khong ai tai tiep thi bo
+    private void deleteStalePartials() {
+        File[] files = partialDir.listFiles();
+        if (files == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (File file : files) {
+            if (now - file.lastModified() > PARTIAL_MAX_AGE_MS) {
+                Log.d(TAG, "deleteStalePartials: " + file.getName());
+                file.delete();
+            }
+        }
+    }
+
+    private void saveIndexAsync() {
+        ioExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                saveIndex();
+            }
+        });
+    }
+
+    private synchronized void saveIndex() {
+        JSONArray array = new JSONArray();
+        try {
+            for (Entry entry : entries.values()) {
+                JSONObject object = new JSONObject();
+                object.put("bookId", entry.bookId);
+                object.put("generation", entry.generation);
+                object.put("md5", entry.md5);
+                object.put("storageGeneration", entry.storageGeneration);
+                object.put("size", entry.size);
+                object.put("lastAccess", entry.lastAccess);
+                object.put("pinned", entry.pinned);
+                object.put("favorite", entry.favorite);
+                array.put(object);
+            }
+
+            File tmp = new File(dir, "index.json.tmp");
+            FileOutputStream out = new FileOutputStream(tmp);
+            out.write(array.toString().getBytes(StandardCharsets.UTF_8));
+            out.close();
+            if (!tmp.renameTo(indexFile)) {
+                tmp.delete();
+            }
+        } catch (IOException | JSONException e) {
+            Log.d(TAG, "saveIndex: " + e.getMessage());
+        }
+    }
+
+    private static void deleteRecursive(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursive(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,255 @@
+package com.pluto.bookapp.store;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.BitSet;
+
+// Tai file theo tung doan (Range) vao file .part, moi doan xong thi ghi vao file .ranges.
+// Lan tai sau (mat mang, app bi tat) chi tai cac doan con thieu.
+// Dung chung cho BookDownloadWorker, FavoriteSyncWorker va ProgressiveBook, chay tren thread cua caller.
+// Mac dinh tai theo thu tu, prioritize() dua mot doan byte len dau hang doi.
+public class ChunkedDownloader {
+
+    private static final String TAG = "CHUNKED_DOWNLOAD";
+
+    private static final int CHUNK_SIZE = 2 * 1024 * 1024;
+
+    public interface Callback {
+        boolean isStopped();
+
+        void onProgress(long bytes, long total);
+    }
+
+    // mot doan [start, end) vua nam tren dia, goi tren thread dang tai
+    public interface ChunkListener {
+        void onChunkDone(long start, long end);
+    }
+
+    private final String url;
+    private final File partFile;
+    private final File rangesFile;
+    private final long total;
+    private final int chunkSize;
+    private final Callback callback;
+    private ChunkListener chunkListener;
+
+    private volatile HttpURLConnection connection;
+
+    // cac doan da xong va cac doan duoc uu tien, khoa bang chinh doi tuong nay
+    private BitSet done = new BitSet();
+    private final ArrayDeque<Integer> priority = new ArrayDeque<>();
+
+    public ChunkedDownloader(String url, File partFile, long total, Callback callback) {
+        this(url, partFile, total, CHUNK_SIZE, callback);
+    }
+
+    public ChunkedDownloader(String url, File partFile, long total, int chunkSize, Callback callback) {
+        this.url = url;
+        this.partFile = partFile;
+        this.rangesFile = new File(partFile.getPath() + ".ranges");
+        this.total = total;
+        this.chunkSize = chunkSize;
+        this.callback = callback;
+    }
+
+    public void setChunkListener(ChunkListener chunkListener) {
+        this.chunkListener = chunkListener;
+    }
+
+    // cac doan chua tai trong [start, end) duoc tai ngay sau doan dang tai. Goi tu thread nao cung duoc
+    public synchronized void prioritize(long start, long end) {
+        int first = (int) (start / chunkSize);
+        int last = (int) ((Math.min(end, total) - 1) / chunkSize);
+        for (int i = last; i >= first; i--) {
+            if (!done.get(i)) {
+                priority.addFirst(i);
+            }
+        }
+    }
+
+    public synchronized boolean isDownloaded(long start, long end) {
+        if (end <= start) {
+            return true;
+        }
+        int first = (int) (start / chunkSize);
+        int last = (int) ((Math.min(end, total) - 1) / chunkSize);
+        return done.nextClearBit(first) > last;
+    }
+
+    // dang doc tu mang thi ngat ngay, khong cho het timeout. Goi tu thread khac
+    public void cancel() {
+        HttpURLConnection conn = connection;
+        if (conn != null) {
+            conn.disconnect();
+        }
+    }
+
+    // xoa file .part va .ranges (tai xong da chuyen vao kho, hoac file hong)
+    public void discard() {
+        partFile.delete();
+        rangesFile.delete();
+    }
+
+    // tra ve false neu bi dung giua chung, file .part van giu de lan sau tai tiep
+    public boolean download() throws IOException {
+        int chunkCount = (int) ((total + chunkSize - 1) / chunkSize);
+        BitSet resumed = readRanges();
+        if (resumed.isEmpty()) {
+            partFile.delete();
+        }
+        synchronized (this) {
+            done = resumed;
+        }
+
+        long bytes = 0;
+        for (int i = resumed.nextSetBit(0); i >= 0; i = resumed.nextSetBit(i + 1)) {
+            bytes += chunkLength(i);
+        }
+        Log.d(TAG, "download: " + partFile.getName() + " resume at " + resumed.cardinality() + "/" + chunkCount + " chunks");
+
+        RandomAccessFile out = new RandomAccessFile(partFile, "rw");
+        FileOutputStream rangesOut = new FileOutputStream(rangesFile, true);
+        try {
+            out.setLength(total);
+            if (rangesFile.length() == 0) {
+                rangesOut.write((total + " " + chunkSize + "\n").getBytes(StandardCharsets.UTF_8));
+            }
+
+            for (int i = nextChunk(chunkCount); i >= 0; i = nextChunk(chunkCount)) {
+                if (callback.isStopped()) {
+                    return false;
+                }
+                long start = (long) i * chunkSize;
+                long length = chunkLength(i);
+                boolean ranged = fetchRange(start, length, bytes, out);
+                if (callback.isStopped()) {
+                    return false;
+                }
+                if (!ranged) {
+                    // server tra ca file (khong ho tro Range): da ghi het, khong can file .ranges
+                    synchronized (this) {
+                        done.set(0, chunkCount);
+                    }
+                    return true;
+                }
+                // doan da nam tren dia truoc khi ghi vao .ranges
+                out.getFD().sync();
+                rangesOut.write((i + "\n").getBytes(StandardCharsets.UTF_8));
+                rangesOut.getFD().sync();
+                synchronized (this) {
+                    done.set(i);
+                }
+                bytes += length;
+                if (chunkListener != null) {
+                    chunkListener.onChunkDone(start, start + length);
+                }
+            }
+            return true;
+        } catch (IOException e) {
+            if (callback.isStopped()) {
+                return false;
+            }
+            throw e;
+        } finally {
+            out.close();
+            rangesOut.close();
+        }
+    }
+
+    // doan uu tien chua xong, khong co thi doan chua xong dau tien; -1 khi da du
+    private synchronized int nextChunk(int chunkCount) {
+        while (!priority.isEmpty()) {
+            int i = priority.pollFirst();
+            if (i < chunkCount && !done.get(i)) {
+                return i;
+            }
+        }
+        int i = done.nextClearBit(0);
+        return i < chunkCount ? i : -1;
+    }
+
+    // ghi doan [start, start + length) vao out, tra ve false neu server tra ca file thay vi mot doan
+    private boolean fetchRange(long start, long length, long bytesBefore, RandomAccessFile out) throws IOException {
+        HttpURLConnection conn = (HttpURLConnection) new URL(url).openConnection();
+        conn.setConnectTimeout(15000);
+        conn.setReadTimeout(15000);
+        conn.setRequestProperty("Range", "bytes=" + start + "-" + (start + length - 1));
+        connection = conn;
+        try {
+            int code = conn.getResponseCode();
+            boolean ranged;
+            if (code == HttpURLConnection.HTTP_PARTIAL) {
+                ranged = true;
+                out.seek(start);
+            } else if (code == HttpURLConnection.HTTP_OK) {
+                ranged = false;
+                length = total;
+                bytesBefore = 0;
+                out.seek(0);
+            } else {
+                throw new IOException("Download failed, http " + code);
+            }
+
+            InputStream in = conn.getInputStream();
+            try {
+                byte[] buffer = new byte[64 * 1024];
+                long written = 0;
+                int n;
+                while (written < length && (n = in.read(buffer, 0, (int) Math.min(buffer.length, length - written))) != -1) {
+                    out.write(buffer, 0, n);
+                    written += n;
+                    callback.onProgress(bytesBefore + written, total);
+                }
+                if (written != length) {
+                    throw new IOException("Short read " + written + "/" + length + " at " + start);
+                }
+            } finally {
+                in.close();
+            }
+            return ranged;
+        } finally {
+            connection = null;
+            conn.disconnect();
+        }
+    }
+
+    // dong dau: "<total> <chunkSize>", cac dong sau: so thu tu doan da xong.
+    // file khac kich thuoc (sach upload lai, doi kich thuoc doan) thi bo, tai lai tu dau
+    private BitSet readRanges() {
+        BitSet done = new BitSet();
+        if (!rangesFile.exists()) {
+            return done;
+        }
+        try {
+            String text = BookStore.readText(rangesFile);
+            String[] lines = text.split("\n");
+            // dong cuoi chua co "\n" la dong bi cat do app tat giua chung, bo qua
+            int complete = text.endsWith("\n") ? lines.length : lines.length - 1;
+            if (complete > 0 && lines[0].equals(total + " " + chunkSize)) {
+                for (int i = 1; i < complete; i++) {
+                    if (!lines[i].isEmpty()) {
+                        done.set(Integer.parseInt(lines[i].trim()));
+                    }
+                }
+                return done;
+            }
+        } catch (IOException | NumberFormatException e) {
+            Log.d(TAG, "readRanges: " + e.getMessage());
+        }
+        rangesFile.delete();
+        return new BitSet();
+    }
+
+    private long chunkLength(int index) {
+        return Math.min(chunkSize, total - (long) index * chunkSize);
+    }
+}
@@ -0,0 +1,298 @@
+package com.pluto.bookapp.store;
+
+import android.app.ActivityManager;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.WorkInfo;
+import androidx.work.WorkManager;
+
+import com.pluto.bookapp.worker.BookDownloadWorker;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Hang doi tai sach, luu trong SharedPreferences. Chi giao toi da maxParallel sach cho
+// WorkManager mot luc (dung thu tu user sap xep), sach xong/huy/loi thi giao sach tiep theo.
+// Dieu kien Wi-Fi / dang sac gan vao constraints cua tung BookDownloadWorker.
+public class DownloadQueue {
+
+    private static final String TAG = "DOWNLOAD_QUEUE";
+
+    public static final int MAX_PARALLEL_LIMIT = 4;
+
+    private static final String PREFS = "download_queue";
+    private static final String PREF_ITEMS = "items";
+    private static final String PREF_MAX_PARALLEL = "maxParallel";
+    private static final String PREF_WIFI_ONLY = "wifiOnly";
+    private static final String PREF_CHARGING_ONLY = "chargingOnly";
+
+    public static class Item {
+        public final String bookId;
+        public final String title;
+        public final String url;
+        // da giao cho WorkManager (dang tai hoac dang cho dieu kien)
+        boolean dispatched;
+
+        Item(String bookId, String title, String url) {
+            this.bookId = bookId;
+            this.title = title;
+            this.url = url;
+        }
+
+        public boolean isDispatched() {
+            return dispatched;
+        }
+    }
+
+    public interface Listener {
+        void onQueueChanged();
+    }
+
+    private final Context context;
+    private final SharedPreferences prefs;
+    private final ArrayList<Item> items = new ArrayList<>();
+    private final ArrayList<Listener> listeners = new ArrayList<>();
+    // hoi WorkManager la thao tac chan, lam tuan tu tren mot thread
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    public DownloadQueue(Context context) {
+        this.context = context.getApplicationContext();
+        prefs = context.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+        loadItems();
+    }
+
+    public synchronized List<Item> getItems() {
+        return new ArrayList<>(items);
+    }
+
+    public void add(String bookId, String title, String url) {
+        synchronized (this) {
+            if (indexOf(bookId) >= 0) {
+                return;
+            }
+            items.add(new Item(bookId, title, url));
+            saveItems();
+        }
+        dispatch();
+    }
+
+    public void cancel(String bookId) {
+        synchronized (this) {
+            int index = indexOf(bookId);
+            if (index < 0) {
+                return;
+            }
+            items.remove(index);
+            saveItems();
+        }
+        WorkManager.getInstance(context).cancelUniqueWork(BookDownloadWorker.workName(bookId));
+        dispatch();
+    }
+
+    // doi thu tu, chi anh huong sach chua duoc giao
+    public void move(int from, int to) {
+        synchronized (this) {
+            if (from < 0 || from >= items.size() || to < 0 || to >= items.size()) {
+                return;
+            }
+            items.add(to, items.remove(from));
+            saveItems();
+        }
+        dispatch();
+    }
+
+    public int getMaxParallel() {
+        return prefs.getInt(PREF_MAX_PARALLEL, defaultMaxParallel());
+    }
+
+    public void setMaxParallel(int maxParallel) {
+        maxParallel = Math.max(1, Math.min(MAX_PARALLEL_LIMIT, maxParallel));
+        prefs.edit().putInt(PREF_MAX_PARALLEL, maxParallel).apply();
+        dispatch();
+    }
+
+    public boolean isWifiOnly() {
+        return prefs.getBoolean(PREF_WIFI_ONLY, false);
+    }
+
+    public void setWifiOnly(boolean wifiOnly) {
+        prefs.edit().putBoolean(PREF_WIFI_ONLY, wifiOnly).apply();
+        requeueDispatched();
+    }
+
+    public boolean isChargingOnly() {
+        return prefs.getBoolean(PREF_CHARGING_ONLY, false);
+    }
+
+    public void setChargingOnly(boolean chargingOnly) {
+        prefs.edit().putBoolean(PREF_CHARGING_ONLY, chargingOnly).apply();
+        requeueDispatched();
+    }
+
+    public synchronized void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public synchronized void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    // goi khi trang thai cac worker thay doi (MyApplication theo doi WorkInfo)
+    public void dispatch() {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                reconcile();
+            }
+        });
+    }
+
+    // bo sach da xong/huy/loi roi giao them sach cho toi maxParallel
+    private void reconcile() {
+        WorkManager workManager = WorkManager.getInstance(context);
+        ArrayList<Item> dispatched = new ArrayList<>();
+        synchronized (this) {
+            for (Item item : items) {
+                if (item.dispatched) {
+                    dispatched.add(item);
+                }
+            }
+        }
+
+        ArrayList<Item> finished = new ArrayList<>();
+        for (Item item : dispatched) {
+            try {
+                List<WorkInfo> infos = workManager.getWorkInfosForUniqueWork(BookDownloadWorker.workName(item.bookId)).get();
+                if (infos.isEmpty() || infos.get(infos.size() - 1).getState().isFinished()) {
+                    finished.add(item);
+                }
+            } catch (Exception e) {
+                Log.d(TAG, "reconcile: " + e.getMessage());
+            }
+        }
+
+        ArrayList<Item> toStart = new ArrayList<>();
+        synchronized (this) {
+            items.removeAll(finished);
+            int running = 0;
+            for (Item item : items) {
+                if (item.dispatched) {
+                    running++;
+                }
+            }
+            int maxParallel = getMaxParallel();
+            for (Item item : items) {
+                if (running >= maxParallel) {
+                    break;
+                }
+                if (!item.dispatched) {
+                    item.dispatched = true;
+                    toStart.add(item);
+                    running++;
+                }
+            }
+            saveItems();
+        }
+
+        for (Item item : toStart) {
+            enqueue(item, ExistingWorkPolicy.KEEP);
+        }
+        Log.d(TAG, "reconcile: " + finished.size() + " finished, " + toStart.size() + " started, " + items.size() + " in queue");
+        notifyListeners();
+    }
+
+    // doi dieu kien thi giao lai sach dang tai voi constraints moi, file .part van giu nen tai tiep duoc
+    private void requeueDispatched() {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                for (Item item : getItems()) {
+                    if (item.dispatched) {
+                        enqueue(item, ExistingWorkPolicy.REPLACE);
+                    }
+                }
+                reconcile();
+            }
+        });
+    }
+
+    private void enqueue(Item item, ExistingWorkPolicy policy) {
+        BookDownloadWorker.enqueue(context, item.bookId, item.title, item.url, isWifiOnly(), isChargingOnly(), policy);
+    }
+
+    private void notifyListeners() {
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                ArrayList<Listener> copy;
+                synchronized (DownloadQueue.this) {
+                    copy = new ArrayList<>(listeners);
+                }
+                for (Listener listener : copy) {
+                    listener.onQueueChanged();
+                }
+            }
+        });
+    }
+
+    // may yeu (it RAM) chi tai mot sach mot luc
+    private int defaultMaxParallel() {
+        ActivityManager activityManager = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        if (activityManager != null && activityManager.isLowRamDevice()) {
+            return 1;
+        }
+        return Runtime.getRuntime().availableProcessors() >= 8 ? 3 : 2;
+    }
+
+    private int indexOf(String bookId) {
+        for (int i = 0; i < items.size(); i++) {
+            if (items.get(i).bookId.equals(bookId)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private synchronized void loadItems() {
+        try {
+            JSONArray array = new JSONArray(prefs.getString(PREF_ITEMS, "[]"));
+            for (int i = 0; i < array.length(); i++) {
+                JSONObject object = array.getJSONObject(i);
+                Item item = new Item(object.getString("bookId"), object.getString("title"), object.getString("url"));
+                item.dispatched = object.optBoolean("dispatched");
+                items.add(item);
+            }
+        } catch (JSONException e) {
+            Log.d(TAG, "loadItems: " + e.getMessage());
+        }
+    }
+
+    private synchronized void saveItems() {
+        JSONArray array = new JSONArray();
+        try {
+            for (Item item : items) {
+                JSONObject object = new JSONObject();
+                object.put("bookId", item.bookId);
+                object.put("title", item.title);
+                object.put("url", item.url);
+                object.put("dispatched", item.dispatched);
+                array.put(object);
+            }
+        } catch (JSONException e) {
+            Log.d(TAG, "saveItems: " + e.getMessage());
+        }
+        prefs.edit().putString(PREF_ITEMS, array.toString()).apply();
+    }
+}
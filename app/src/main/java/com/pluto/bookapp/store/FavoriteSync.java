@@ -0,0 +1,131 @@
+package com.pluto.bookapp.store;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.database.ChildEventListener;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.ValueEventListener;
+import com.pluto.bookapp.worker.FavoriteSyncWorker;
+
+import java.util.HashSet;
+
+// "Doc offline sach yeu thich": theo doi Users/<uid>/Favorites bang child event.
+// Them sach -> FavoriteSyncWorker tai vao BookStore, bo sach -> xoa khoi kho (tru sach da ghim).
+public class FavoriteSync {
+
+    private static final String TAG = "FAVORITE_SYNC";
+
+    private static final String PREFS = "favorite_sync";
+    private static final String PREF_ENABLED = "enabled";
+
+    private final Context context;
+    private final SharedPreferences prefs;
+    private final BookStore bookStore;
+
+    private DatabaseReference favoritesRef;
+    private ChildEventListener childListener;
+
+    public FavoriteSync(Context context, BookStore bookStore) {
+        this.context = context.getApplicationContext();
+        this.bookStore = bookStore;
+        prefs = context.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+    }
+
+    public boolean isEnabled() {
+        return prefs.getBoolean(PREF_ENABLED, false);
+    }
+
+    // tat thi huy cac job dang cho va tra sach yeu thich ve LRU binh thuong (xoa neu khong ghim)
+    public void setEnabled(boolean enabled) {
+        prefs.edit().putBoolean(PREF_ENABLED, enabled).apply();
+        if (enabled) {
+            start();
+        } else {
+            stop();
+            FavoriteSyncWorker.cancelAll(context);
+            for (String bookId : bookStore.getFavoriteIds()) {
+                bookStore.setFavorite(bookId, false);
+            }
+        }
+    }
+
+    // goi khi mo app va khi doi tai khoan
+    public void start() {
+        stop();
+        String uid = FirebaseAuth.getInstance().getUid();
+        if (!isEnabled() || uid == null) {
+            return;
+        }
+        favoritesRef = FirebaseDatabase.getInstance().getReference("Users").child(uid).child("Favorites");
+
+        // sach bo yeu thich luc app dang tat (hoac dung luc worker dang ghi vao kho)
+        // thi khong co child event, so lai mot lan
+        favoritesRef.addListenerForSingleValueEvent(new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot snapshot) {
+                HashSet<String> favorites = new HashSet<>();
+                for (DataSnapshot ds : snapshot.getChildren()) {
+                    favorites.add(ds.getKey());
+                }
+                for (String bookId : bookStore.getFavoriteIds()) {
+                    if (!favorites.contains(bookId)) {
+                        Log.d(TAG, "onDataChange: " + bookId + " no longer favorite");
+                        bookStore.setFavorite(bookId, false);
+                    }
+                }
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {
+                Log.d(TAG, "onCancelled: " + error.getMessage());
+            }
+        });
+
+        // onChildAdded chay cho moi sach hien co roi cho tung sach moi them
+        childListener = new ChildEventListener() {
+            @Override
+            public void onChildAdded(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
+                FavoriteSyncWorker.enqueue(context, snapshot.getKey());
+            }
+
+            @Override
+            public void onChildChanged(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
+            }
+
+            @Override
+            public void onChildRemoved(@NonNull DataSnapshot snapshot) {
+                String bookId = snapshot.getKey();
+                Log.d(TAG, "onChildRemoved: " + bookId);
+                FavoriteSyncWorker.cancel(context, bookId);
+                bookStore.setFavorite(bookId, false);
+            }
+
+            @Override
+            public void onChildMoved(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {
+                Log.d(TAG, "onCancelled: " + error.getMessage());
+            }
+        };
+        favoritesRef.addChildEventListener(childListener);
+    }
+
+    public void stop() {
+        if (favoritesRef != null && childListener != null) {
+            favoritesRef.removeEventListener(childListener);
+        }
+        favoritesRef = null;
+        childListener = null;
+    }
+}
@@ -0,0 +1,143 @@
+package com.pluto.bookapp.store;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.util.LruCache;
+
+import androidx.annotation.NonNull;
+
+import com.google.android.gms.tasks.OnFailureListener;
+import com.google.android.gms.tasks.OnSuccessListener;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.storage.FirebaseStorage;
+import com.google.firebase.storage.StorageMetadata;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// StorageMetadata (vai tram byte: size, md5, generation) cua file pdf, giu trong TTL_MS.
+// Danh sach, man chi tiet va reader cung hoi mot url trong thoi gian ngan chi ton mot request,
+// cac request dang bay cung url thi dung chung ket qua.
+public class MetadataCache {
+
+    private static final String TAG = "METADATA_CACHE";
+
+    private static final long TTL_MS = 5 * 60 * 1000;
+    private static final int MAX_ENTRIES = 300;
+
+    public interface Callback {
+        void onMetadata(StorageMetadata metadata);
+
+        void onError(Exception e);
+    }
+
+    private static class Entry {
+        final StorageMetadata metadata;
+        final long fetchedAt;
+
+        Entry(StorageMetadata metadata) {
+            this.metadata = metadata;
+            this.fetchedAt = System.currentTimeMillis();
+        }
+
+        boolean isFresh() {
+            return System.currentTimeMillis() - fetchedAt < TTL_MS;
+        }
+    }
+
+    private final LruCache<String, Entry> cache = new LruCache<>(MAX_ENTRIES);
+    private final HashMap<String, ArrayList<Callback>> inFlight = new HashMap<>();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger misses = new AtomicInteger();
+
+    // con han thi tra ve, het han/chua co thi null
+    public StorageMetadata getCached(String url) {
+        Entry entry = cache.get(url);
+        return entry != null && entry.isFresh() ? entry.metadata : null;
+    }
+
+    // callback luon chay tren main thread
+    public void get(String url, Callback callback) {
+        StorageMetadata cached = getCached(url);
+        if (cached != null) {
+            hits.incrementAndGet();
+            mainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    callback.onMetadata(cached);
+                }
+            });
+            return;
+        }
+
+        synchronized (inFlight) {
+            ArrayList<Callback> waiting = inFlight.get(url);
+            if (waiting != null) {
+                waiting.add(callback);
+                return;
+            }
+            waiting = new ArrayList<>();
+            waiting.add(callback);
+            inFlight.put(url, waiting);
+        }
+        misses.incrementAndGet();
+
+        FirebaseStorage.getInstance().getReferenceFromUrl(url).getMetadata()
+                .addOnSuccessListener(new OnSuccessListener<StorageMetadata>() {
+                    @Override
+                    public void onSuccess(StorageMetadata metadata) {
+                        cache.put(url, new Entry(metadata));
+                        for (Callback waiting : takeWaiting(url)) {
+                            waiting.onMetadata(metadata);
+                        }
+                    }
+                })
+                .addOnFailureListener(new OnFailureListener() {
+                    @Override
+                    public void onFailure(@NonNull Exception e) {
+                        Log.d(TAG, "onFailure: " + e.getMessage());
+                        for (Callback waiting : takeWaiting(url)) {
+                            waiting.onError(e);
+                        }
+                    }
+                });
+    }
+
+    // ban chan cho worker, khong goi tren main thread
+    public StorageMetadata await(String url) throws ExecutionException, InterruptedException {
+        StorageMetadata cached = getCached(url);
+        if (cached != null) {
+            hits.incrementAndGet();
+            return cached;
+        }
+        misses.incrementAndGet();
+        StorageMetadata metadata = Tasks.await(FirebaseStorage.getInstance().getReferenceFromUrl(url).getMetadata());
+        cache.put(url, new Entry(metadata));
+        return metadata;
+    }
+
+    // file vua upload lai thi bo ket qua cu
+    public void invalidate(String url) {
+        cache.remove(url);
+    }
+
+    public int getHitCount() {
+        return hits.get();
+    }
+
+    public int getMissCount() {
+        return misses.get();
+    }
+
+    private ArrayList<Callback> takeWaiting(String url) {
+        synchronized (inFlight) {
+            ArrayList<Callback> waiting = inFlight.remove(url);
+            return waiting == null ? new ArrayList<Callback>() : waiting;
+        }
+    }
+}
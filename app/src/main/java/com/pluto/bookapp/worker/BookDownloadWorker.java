@@ -0,0 +1,262 @@
+package com.pluto.bookapp.worker;
+
+import android.app.Notification;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.content.ContentResolver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.ServiceInfo;
+import android.net.Uri;
+import android.os.Build;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.core.app.NotificationCompat;
+import androidx.core.app.NotificationManagerCompat;
+import androidx.work.BackoffPolicy;
+import androidx.work.Constraints;
+import androidx.work.Data;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.ForegroundInfo;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkInfo;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.google.firebase.storage.StorageException;
+import com.google.firebase.storage.StorageMetadata;
+import com.pluto.bookapp.MyApplication;
+import com.pluto.bookapp.R;
+import com.pluto.bookapp.cover.CoverCache;
+import com.pluto.bookapp.store.BookStore;
+import com.pluto.bookapp.store.ChunkedDownloader;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+// Tai sach theo tung doan (ChunkedDownloader) vao file .part trong BookStore. Mat mang hay app
+// bi tat thi WorkManager chay lai va chi tai cac doan con thieu.
+// Chay foreground de tiep tuc khi app o nen, tien do theo byte hien tren notification.
+public class BookDownloadWorker extends Worker {
+
+    private static final String TAG = "BOOK_DOWNLOAD";
+
+    // moi worker tai sach co tag nay va tag bookTag(bookId) de man hinh hang doi theo doi tien do
+    public static final String WORK_TAG = "book_download";
+
+    public static final String KEY_BOOK_ID = "bookId";
+    public static final String KEY_TITLE = "title";
+    public static final String KEY_URL = "url";
+    public static final String KEY_BYTES = "bytes";
+    public static final String KEY_TOTAL = "total";
+
+    private static final String CHANNEL_ID = "downloads";
+
+    private static final int MAX_ATTEMPTS = 8;
+    // cap nhat notification toi da moi 500ms
+    private static final long PROGRESS_INTERVAL_MS = 500;
+
+    private String bookId, title;
+    private int notificationId;
+    private long lastProgressAt;
+    private volatile ChunkedDownloader downloader;
+
+    public BookDownloadWorker(@NonNull Context context, @NonNull WorkerParameters workerParams) {
+        super(context, workerParams);
+    }
+
+    public static String workName(String bookId) {
+        return "download_" + bookId;
+    }
+
+    public static String bookTag(String bookId) {
+        return "book_" + bookId;
+    }
+
+    public static String bookIdOf(WorkInfo info) {
+        for (String tag : info.getTags()) {
+            if (tag.startsWith("book_") && !tag.equals(WORK_TAG)) {
+                return tag.substring("book_".length());
+            }
+        }
+        return null;
+    }
+
+    // DownloadQueue quyet dinh khi nao giao sach; KEEP giu job dang chay, REPLACE khi doi dieu kien
+    public static void enqueue(Context context, String bookId, String title, String url,
+                               boolean wifiOnly, boolean chargingOnly, ExistingWorkPolicy policy) {
+        Constraints constraints = new Constraints.Builder()
+                .setRequiredNetworkType(wifiOnly ? NetworkType.UNMETERED : NetworkType.CONNECTED)
+                .setRequiresCharging(chargingOnly)
+                .build();
+        Data input = new Data.Builder()
+                .putString(KEY_BOOK_ID, bookId)
+                .putString(KEY_TITLE, title)
+                .putString(KEY_URL, url)
+                .build();
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(BookDownloadWorker.class)
+                .setConstraints(constraints)
+                .setInputData(input)
+                .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, 10, TimeUnit.SECONDS)
+                .addTag(WORK_TAG)
+                .addTag(bookTag(bookId))
+                .build();
+        WorkManager.getInstance(context).enqueueUniqueWork(workName(bookId), policy, request);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        bookId = getInputData().getString(KEY_BOOK_ID);
+        title = getInputData().getString(KEY_TITLE);
+        String url = getInputData().getString(KEY_URL);
+        notificationId = bookId.hashCode();
+        Log.d(TAG, "doWork: " + bookId + " attempt " + getRunAttemptCount());
+
+        BookStore bookStore = MyApplication.getBookStore();
+        try {
+            // ban trong kho cung md5/generation thi chi ghim va xuat ra Downloads, khong tai lai
+            StorageMetadata metadata = MyApplication.getMetadataCache().await(url);
+            File bookFile = bookStore.getCurrentFile(bookId, url, metadata);
+            if (bookFile == null) {
+                long total = metadata.getSizeBytes();
+                setForegroundAsync(foregroundInfo(0, total));
+
+                String generation = CoverCache.generation(url);
+                File partFile = bookStore.getPartialFile(bookId, generation);
+                downloader = new ChunkedDownloader(url, partFile, total, new ChunkedDownloader.Callback() {
+                    @Override
+                    public boolean isStopped() {
+                        return BookDownloadWorker.this.isStopped();
+                    }
+
+                    @Override
+                    public void onProgress(long bytes, long total) {
+                        reportProgress(bytes, total);
+                    }
+                });
+                if (!downloader.download()) {
+                    // bi dung (mat mang, user huy): giu file .part de lan sau tai tiep
+                    return Result.retry();
+                }
+
+                try {
+                    bookFile = bookStore.commitDownload(partFile, bookId, generation, metadata, true);
+                } finally {
+                    // sai md5 thi file .part hong, tai lai tu dau
+                    downloader.discard();
+                }
+            } else {
+                bookStore.setPinned(bookId, true);
+            }
+
+            Uri savedUri = MyApplication.saveDownloadBook(getApplicationContext(), bookFile, title + ".pdf", bookId);
+            notifyDone(true, savedUri);
+            return Result.success();
+        } catch (ExecutionException e) {
+            Log.d(TAG, "doWork: " + bookId + " " + e.getMessage());
+            if (e.getCause() instanceof StorageException
+                    && ((StorageException) e.getCause()).getErrorCode() == StorageException.ERROR_OBJECT_NOT_FOUND) {
+                notifyDone(false, null);
+                return Result.failure();
+            }
+            return retryOrFail();
+        } catch (IOException e) {
+            Log.d(TAG, "doWork: " + bookId + " " + e.getMessage());
+            return retryOrFail();
+        } catch (InterruptedException e) {
+            return Result.retry();
+        }
+    }
+
+    @Override
+    public void onStopped() {
+        super.onStopped();
+        // dang doc tu mang thi ngat ngay, khong cho het timeout
+        ChunkedDownloader current = downloader;
+        if (current != null) {
+            current.cancel();
+        }
+    }
+
+    private Result retryOrFail() {
+        if (getRunAttemptCount() + 1 >= MAX_ATTEMPTS) {
+            notifyDone(false, null);
+            return Result.failure();
+        }
+        return Result.retry();
+    }
+
+    private void reportProgress(long bytes, long total) {
+        long now = System.currentTimeMillis();
+        if (now - lastProgressAt < PROGRESS_INTERVAL_MS && bytes < total) {
+            return;
+        }
+        lastProgressAt = now;
+        setProgressAsync(new Data.Builder()
+                .putLong(KEY_BYTES, bytes)
+                .putLong(KEY_TOTAL, total)
+                .build());
+        setForegroundAsync(foregroundInfo(bytes, total));
+    }
+
+    private ForegroundInfo foregroundInfo(long bytes, long total) {
+        Context context = getApplicationContext();
+        createChannel(context);
+
+        PendingIntent cancelIntent = WorkManager.getInstance(context).createCancelPendingIntent(getId());
+        int percent = total > 0 ? (int) (bytes * 100 / total) : 0;
+        Notification notification = new NotificationCompat.Builder(context, CHANNEL_ID)
+                .setSmallIcon(R.drawable.ic_download_white)
+                .setContentTitle(title)
+                .setContentText(MyApplication.formatBytes(bytes) + " / " + MyApplication.formatBytes(total))
+                .setProgress(100, percent, total <= 0)
+                .setOngoing(true)
+                .setOnlyAlertOnce(true)
+                .addAction(0, "Cancel", cancelIntent)
+                .build();
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            return new ForegroundInfo(notificationId, notification, ServiceInfo.FOREGROUND_SERVICE_TYPE_DATA_SYNC);
+        }
+        return new ForegroundInfo(notificationId, notification);
+    }
+
+    // notification ket qua dung id khac, notification foreground bi xoa khi worker xong
+    // savedUri: file trong MediaStore, bam notification thi mo bang app doc pdf
+    private void notifyDone(boolean success, Uri savedUri) {
+        Context context = getApplicationContext();
+        createChannel(context);
+        NotificationCompat.Builder builder = new NotificationCompat.Builder(context, CHANNEL_ID)
+                .setSmallIcon(R.drawable.ic_download_white)
+                .setContentTitle(title)
+                .setContentText(success ? "Saved to Download Folder" : "Download failed")
+                .setAutoCancel(true);
+        if (savedUri != null && ContentResolver.SCHEME_CONTENT.equals(savedUri.getScheme())) {
+            Intent view = new Intent(Intent.ACTION_VIEW)
+                    .setDataAndType(savedUri, "application/pdf")
+                    .addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION | Intent.FLAG_ACTIVITY_NEW_TASK);
+            builder.setContentIntent(PendingIntent.getActivity(context, notificationId, view, PendingIntent.FLAG_IMMUTABLE));
+        }
+        Notification notification = builder.build();
+        try {
+            NotificationManagerCompat.from(context).notify(notificationId + 1, notification);
+        } catch (SecurityException e) {
+            // chua cap quyen POST_NOTIFICATIONS
+            Log.d(TAG, "notifyDone: " + e.getMessage());
+        }
+    }
+
+    private static void createChannel(Context context) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            NotificationChannel channel = new NotificationChannel(CHANNEL_ID, "Downloads", NotificationManager.IMPORTANCE_LOW);
+            context.getSystemService(NotificationManager.class).createNotificationChannel(channel);
+        }
+    }
+}
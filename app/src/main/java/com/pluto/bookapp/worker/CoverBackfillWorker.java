@@ -0,0 +1,215 @@
+package com.pluto.bookapp.worker;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.graphics.Bitmap;
+import android.net.Uri;
+import android.os.ParcelFileDescriptor;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.Constraints;
+import androidx.work.Data;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.Query;
+import com.google.firebase.storage.FirebaseStorage;
+import com.google.firebase.storage.StorageMetadata;
+import com.google.firebase.storage.StorageReference;
+import com.pluto.bookapp.MyApplication;
+import com.pluto.bookapp.cover.BlurHash;
+import com.pluto.bookapp.cover.CoverRenderer;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Tao anh bia, so trang, dung luong va placeholder cho cac sach upload truoc khi co anh bia.
+// Duyet Books theo key tung trang, moi trang xu ly song song toi da PARALLELISM sach (it hon tren may yeu).
+// Key cuoi cung cua trang da xong duoc luu vao SharedPreferences, bi dung giua chung thi
+// lan chay sau lam tiep tu do.
+public class CoverBackfillWorker extends Worker {
+
+    private static final String TAG = "COVER_BACKFILL";
+
+    public static final String WORK_NAME = "cover_backfill";
+
+    public static final String KEY_PROCESSED = "processed";
+    public static final String KEY_UPDATED = "updated";
+    public static final String KEY_FAILED = "failed";
+
+    private static final int PAGE_SIZE = 20;
+    private static final int PARALLELISM = 3;
+
+    private static final String PREFS = "cover_backfill";
+    private static final String PREF_LAST_KEY = "lastKey";
+
+    private SharedPreferences prefs;
+
+    public CoverBackfillWorker(@NonNull Context context, @NonNull WorkerParameters workerParams) {
+        super(context, workerParams);
+    }
+
+    // chi chay mot job mot luc, bam lai khi dang chay thi giu job cu
+    public static void enqueue(Context context) {
+        Constraints constraints = new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.CONNECTED)
+                .build();
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(CoverBackfillWorker.class)
+                .setConstraints(constraints)
+                .build();
+        WorkManager.getInstance(context).enqueueUniqueWork(WORK_NAME, ExistingWorkPolicy.KEEP, request);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        prefs = getApplicationContext().getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+        String lastKey = prefs.getString(PREF_LAST_KEY, null);
+        Log.d(TAG, "doWork: start after " + lastKey);
+
+        // moi sach mot PdfRenderer: song song theo sach, nhieu nhat PARALLELISM va khong qua so renderer
+        // DeviceProfile cho phep (may it RAM chi mot)
+        int parallelism = Math.min(PARALLELISM, MyApplication.getDeviceProfile().getRendererPoolSize());
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try {
+            DatabaseReference booksRef = FirebaseDatabase.getInstance().getReference("Books");
+            while (!isStopped()) {
+                Query query = booksRef.orderByKey().limitToFirst(PAGE_SIZE);
+                if (lastKey != null) {
+                    query = booksRef.orderByKey().startAfter(lastKey).limitToFirst(PAGE_SIZE);
+                }
+                DataSnapshot page = Tasks.await(query.get());
+                if (!page.hasChildren()) {
+                    break;
+                }
+
+                List<Future<Boolean>> futures = new ArrayList<>();
+                String pageLastKey = lastKey;
+                int processed = 0, updated = 0, failed = 0;
+                for (DataSnapshot book : page.getChildren()) {
+                    pageLastKey = book.getKey();
+                    processed++;
+                    if (!needsBackfill(book)) {
+                        continue;
+                    }
+                    futures.add(executor.submit(new Callable<Boolean>() {
+                        @Override
+                        public Boolean call() {
+                            return backfill(book);
+                        }
+                    }));
+                }
+
+                for (Future<Boolean> future : futures) {
+                    if (future.get()) {
+                        updated++;
+                    } else {
+                        failed++;
+                    }
+                }
+
+                if (isStopped()) {
+                    // trang chua chac xong het, lan sau lam lai trang nay
+                    break;
+                }
+                // checkpoint va so lieu ghi cung luc de chay lai khong dem trung
+                lastKey = pageLastKey;
+                prefs.edit()
+                        .putString(PREF_LAST_KEY, lastKey)
+                        .putInt(KEY_PROCESSED, prefs.getInt(KEY_PROCESSED, 0) + processed)
+                        .putInt(KEY_UPDATED, prefs.getInt(KEY_UPDATED, 0) + updated)
+                        .putInt(KEY_FAILED, prefs.getInt(KEY_FAILED, 0) + failed)
+                        .apply();
+                setProgressAsync(progressData());
+            }
+
+            if (isStopped()) {
+                return Result.retry();
+            }
+
+            Log.d(TAG, "doWork: done, updated " + prefs.getInt(KEY_UPDATED, 0) + ", failed " + prefs.getInt(KEY_FAILED, 0));
+            Data output = progressData();
+            // xong het thi lan sau bat dau lai tu dau
+            prefs.edit().clear().apply();
+            return Result.success(output);
+        } catch (Exception e) {
+            Log.d(TAG, "doWork: " + e.getMessage());
+            return Result.retry();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private boolean needsBackfill(DataSnapshot book) {
+        String coverUrl = "" + book.child("coverUrl").getValue();
+        return coverUrl.isEmpty() || coverUrl.equals("null")
+                || !book.hasChild("pageCount")
+                || !book.hasChild("size")
+                || !book.hasChild("blurHash");
+    }
+
+    // tai pdf ve file tam, ve trang dau, upload anh bia roi ghi lai cac truong bang updateChildren
+    private boolean backfill(DataSnapshot book) {
+        String bookId = book.getKey();
+        String url = "" + book.child("url").getValue();
+        File tmp = new File(getApplicationContext().getCacheDir(), "backfill_" + bookId + ".pdf");
+        try {
+            StorageReference pdfRef = FirebaseStorage.getInstance().getReferenceFromUrl(url);
+            Tasks.await(pdfRef.getFile(tmp));
+
+            ParcelFileDescriptor pfd = ParcelFileDescriptor.open(tmp, ParcelFileDescriptor.MODE_READ_ONLY);
+            CoverRenderer.Result cover = CoverRenderer.render(pfd, CoverRenderer.COVER_WIDTH);
+            Bitmap bitmap = cover.bitmap;
+            byte[] coverBytes = CoverRenderer.encodeWebp(bitmap);
+            String blurHash = BlurHash.encode(bitmap);
+            int dominantColor = CoverRenderer.dominantColor(bitmap);
+            bitmap.recycle();
+
+            StorageReference coverRef = FirebaseStorage.getInstance().getReference("Book/" + bookId + "_cover");
+            StorageMetadata metadata = new StorageMetadata.Builder()
+                    .setContentType("image/webp")
+                    .build();
+            Tasks.await(coverRef.putBytes(coverBytes, metadata));
+            Uri coverUri = Tasks.await(coverRef.getDownloadUrl());
+
+            HashMap<String, Object> hashMap = new HashMap<>();
+            hashMap.put("coverUrl", "" + coverUri);
+            hashMap.put("pageCount", cover.pageCount);
+            hashMap.put("size", tmp.length());
+            hashMap.put("blurHash", blurHash);
+            hashMap.put("dominantColor", dominantColor);
+            Tasks.await(book.getRef().updateChildren(hashMap));
+
+            Log.d(TAG, "backfill: " + bookId + " " + cover.pageCount + " pages, " + tmp.length() + " bytes");
+            return true;
+        } catch (Exception e) {
+            Log.d(TAG, "backfill: " + bookId + " failed " + e.getMessage());
+            return false;
+        } finally {
+            tmp.delete();
+        }
+    }
+
+    private Data progressData() {
+        return new Data.Builder()
+                .putInt(KEY_PROCESSED, prefs.getInt(KEY_PROCESSED, 0))
+                .putInt(KEY_UPDATED, prefs.getInt(KEY_UPDATED, 0))
+                .putInt(KEY_FAILED, prefs.getInt(KEY_FAILED, 0))
+                .build();
+    }
+}
@@ -0,0 +1,147 @@
+package com.pluto.bookapp.worker;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.BackoffPolicy;
+import androidx.work.Constraints;
+import androidx.work.Data;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.storage.StorageException;
+import com.google.firebase.storage.StorageMetadata;
+import com.pluto.bookapp.MyApplication;
+import com.pluto.bookapp.cover.CoverCache;
+import com.pluto.bookapp.store.BookStore;
+import com.pluto.bookapp.store.ChunkedDownloader;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+// Tai mot sach yeu thich vao BookStore de doc offline. Chi chay khi co mang khong tinh phi
+// (Wi-Fi) va pin khong yeu. Sach da co dung ban (cung md5/generation tren Storage) thi bo qua.
+public class FavoriteSyncWorker extends Worker {
+
+    private static final String TAG = "FAVORITE_SYNC";
+
+    public static final String WORK_TAG = "favorite_sync";
+
+    private static final String KEY_BOOK_ID = "bookId";
+
+    private static final int MAX_ATTEMPTS = 5;
+
+    private volatile ChunkedDownloader downloader;
+
+    public FavoriteSyncWorker(@NonNull Context context, @NonNull WorkerParameters workerParams) {
+        super(context, workerParams);
+    }
+
+    public static String workName(String bookId) {
+        return "favorite_" + bookId;
+    }
+
+    public static void enqueue(Context context, String bookId) {
+        Constraints constraints = new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.UNMETERED)
+                .setRequiresBatteryNotLow(true)
+                .build();
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(FavoriteSyncWorker.class)
+                .setConstraints(constraints)
+                .setInputData(new Data.Builder().putString(KEY_BOOK_ID, bookId).build())
+                .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, 30, TimeUnit.SECONDS)
+                .addTag(WORK_TAG)
+                .build();
+        WorkManager.getInstance(context).enqueueUniqueWork(workName(bookId), ExistingWorkPolicy.KEEP, request);
+    }
+
+    public static void cancel(Context context, String bookId) {
+        WorkManager.getInstance(context).cancelUniqueWork(workName(bookId));
+    }
+
+    public static void cancelAll(Context context) {
+        WorkManager.getInstance(context).cancelAllWorkByTag(WORK_TAG);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        String bookId = getInputData().getString(KEY_BOOK_ID);
+        BookStore bookStore = MyApplication.getBookStore();
+        try {
+            DataSnapshot book = Tasks.await(FirebaseDatabase.getInstance().getReference("Books").child(bookId).get());
+            if (!book.exists()) {
+                // sach da bi admin xoa
+                Log.d(TAG, "doWork: " + bookId + " no longer exists");
+                return Result.success();
+            }
+            String url = "" + book.child("url").getValue();
+            StorageMetadata metadata = MyApplication.getMetadataCache().await(url);
+            String generation = CoverCache.generation(url);
+
+            if (bookStore.getCurrentFile(bookId, url, metadata) != null) {
+                Log.d(TAG, "doWork: " + bookId + " unchanged, skip");
+                bookStore.setFavorite(bookId, true);
+                return Result.success();
+            }
+
+            File partFile = bookStore.getFavoritePartialFile(bookId, generation);
+            downloader = new ChunkedDownloader(url, partFile, metadata.getSizeBytes(), new ChunkedDownloader.Callback() {
+                @Override
+                public boolean isStopped() {
+                    return FavoriteSyncWorker.this.isStopped();
+                }
+
+                @Override
+                public void onProgress(long bytes, long total) {
+                }
+            });
+            if (!downloader.download()) {
+                // mat Wi-Fi: giu file .part, lan sau tai tiep
+                return Result.retry();
+            }
+            try {
+                bookStore.commitFavorite(partFile, bookId, generation, metadata);
+            } finally {
+                downloader.discard();
+            }
+            Log.d(TAG, "doWork: " + bookId + " synced " + metadata.getSizeBytes() + " bytes");
+            return Result.success();
+        } catch (ExecutionException e) {
+            Log.d(TAG, "doWork: " + bookId + " " + e.getMessage());
+            if (e.getCause() instanceof StorageException
+                    && ((StorageException) e.getCause()).getErrorCode() == StorageException.ERROR_OBJECT_NOT_FOUND) {
+                return Result.failure();
+            }
+            return retryOrFail();
+        } catch (IOException e) {
+            Log.d(TAG, "doWork: " + bookId + " " + e.getMessage());
+            return retryOrFail();
+        } catch (InterruptedException e) {
+            return Result.retry();
+        }
+    }
+
+    @Override
+    public void onStopped() {
+        super.onStopped();
+        ChunkedDownloader current = downloader;
+        if (current != null) {
+            current.cancel();
+        }
+    }
+
+    private Result retryOrFail() {
+        return getRunAttemptCount() + 1 >= MAX_ATTEMPTS ? Result.failure() : Result.retry();
+    }
+}